@@ -3,7 +3,7 @@ import { messageApi, chatRoomApi } from '../services/api';
 import { useAuth } from '../context/AuthContext';
 import { useMessageNotifications } from '../context/MessageNotificationContext';
 import AddUserModal from './AddUserModal';
-import type { ChatRoom as ChatRoomType, ChatMessage } from '../types';
+import type { ChatRoom as ChatRoomType, ChatMessage, ChatMessageFrame } from '../types';
 
 interface ChatRoomProps {
   room: ChatRoomType;
@@ -16,9 +16,19 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
   const [loading, setLoading] = useState(true);
   const [sending, setSending] = useState(false);
   const [showAddUserModal, setShowAddUserModal] = useState(false);
+  const [olderCursor, setOlderCursor] = useState<string | null>(null);
+  const [loadingOlder, setLoadingOlder] = useState(false);
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const wsRef = useRef<WebSocket | null>(null);
   const reconnectTimeoutRef = useRef<NodeJS.Timeout | null>(null);
+  // Socket sends waiting for their ack frame, by correlation id
+  const pendingAcksRef = useRef<Map<string, (accepted: boolean) => void>>(new Map());
+  // Highest message sequence applied from the socket, so a reconnect can resume from it
+  const lastSeqRef = useRef<number | null>(null);
+  // Chat frames held back while a reconnect's replay is in flight, so they apply in seq order
+  const replayBufferRef = useRef<ChatMessageFrame[] | null>(null);
+  // Cursor after the newest message loaded over REST, to page through a gap the server couldn't replay
+  const newerCursorRef = useRef<string | null>(null);
   const { user } = useAuth();
   const { resetUnreadCount, addMessageToRoom, roomMessages } = useMessageNotifications();
 
@@ -75,8 +85,10 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
   const loadMessages = async () => {
     try {
       setLoading(true);
-      const data = await messageApi.getMessages(room.id);
-      setMessages(data);
+      const page = await messageApi.getMessagePage(room.id);
+      setMessages(page.messages);
+      setOlderCursor(page.before);
+      newerCursorRef.current = page.after;
     } catch (err) {
       console.error('Failed to load messages:', err);
     } finally {
@@ -84,6 +96,60 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
     }
   };
 
+  const mergeMessages = (added: ChatMessage[]) => {
+    setMessages((prev) => {
+      const existingIds = new Set(prev.map(m => m.id));
+      const fresh = added.filter(m => !existingIds.has(m.id));
+      if (fresh.length === 0) {
+        return prev;
+      }
+      // Also add to notification context
+      fresh.forEach((message) => addMessageToRoom(room.id, message));
+      return [...prev, ...fresh].sort((a, b) =>
+        new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
+      );
+    });
+  };
+
+  // Applies chat frames in seq order, dropping any at or below the last seq already applied
+  const applyFrames = (frames: ChatMessageFrame[]) => {
+    const fresh = [...frames]
+      .sort((a, b) => (a.seq ?? 0) - (b.seq ?? 0))
+      .filter((frame) => {
+        if (typeof frame.seq !== 'number') {
+          return true;
+        }
+        if (lastSeqRef.current !== null && frame.seq <= lastSeqRef.current) {
+          return false;
+        }
+        lastSeqRef.current = frame.seq;
+        return true;
+      });
+    if (fresh.length > 0) {
+      console.log(`[ChatRoom] Applying ${fresh.length} new message(s) for active room ${room.id}`);
+      mergeMessages(fresh.map(messageApi.fromFrame));
+    }
+  };
+
+  // Pages forward from the newest message loaded, for whatever the socket couldn't deliver
+  const catchUp = async () => {
+    const cursor = newerCursorRef.current;
+    try {
+      if (cursor === null) {
+        // Nothing loaded yet: the newest page is everything there is to show
+        const page = await messageApi.getMessagePage(room.id);
+        mergeMessages(page.messages);
+        newerCursorRef.current = page.after;
+        return;
+      }
+      const { messages: missed, after } = await messageApi.getMessagesAfter(room.id, cursor);
+      mergeMessages(missed);
+      newerCursorRef.current = after;
+    } catch (err) {
+      console.error(`[ChatRoom] Failed to catch up on room ${room.id}:`, err);
+    }
+  };
+
   const connectWebSocket = () => {
     // Close existing connection if any
     if (wsRef.current) {
@@ -100,7 +166,12 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
     }
 
     // WebSocket URL - adjust based on your backend WebSocket endpoint
-    const wsUrl = `ws://localhost:8080/server/message/${room.id}`;
+    // Browsers can't send an Authorization header on the upgrade, so the JWT goes in the query string
+    const token = encodeURIComponent(localStorage.getItem('token') ?? '');
+    const since = lastSeqRef.current !== null ? `&since=${lastSeqRef.current}` : '';
+    // Live frames may overtake the replay, so they wait for its end marker
+    replayBufferRef.current = since ? [] : null;
+    const wsUrl = `ws://localhost:8080/server/message/${room.id}?token=${token}${since}`;
     const websocket = new WebSocket(wsUrl);
     wsRef.current = websocket;
 
@@ -111,61 +182,45 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
         clearTimeout(reconnectTimeoutRef.current);
         reconnectTimeoutRef.current = null;
       }
+      if (!since) {
+        // Messages sent between loading the page and joining weren't broadcast to us
+        catchUp();
+      }
     };
 
     websocket.onmessage = async (event) => {
       try {
-        const data = JSON.parse(event.data);
-        console.log(`[ChatRoom] WebSocket message received:`, data);
-        
-        // Only process actual messages, not connection/disconnection messages
-        if (data.message && data.chatRoomName === room.id && 
-            data.message !== 'Connected' && data.message !== 'Disconnected') {
-          console.log(`[ChatRoom] Processing new message for active room ${room.id}`);
-          
-          // Retry mechanism to fetch the message from API (in case of timing issues)
-          const fetchWithRetry = async (retries = 3, delay = 200) => {
-            for (let i = 0; i < retries; i++) {
-              try {
-                const messages = await messageApi.getMessages(room.id);
-                console.log(`[ChatRoom] Fetched ${messages.length} messages from API (attempt ${i + 1})`);
-                
-                if (messages && messages.length > 0) {
-                  const latestMessage = messages[messages.length - 1];
-                  
-                  // Check if this is actually a new message (compare with current messages)
-                  setMessages((prev) => {
-                    const existingIds = new Set(prev.map(m => m.id));
-                    if (existingIds.has(latestMessage.id)) {
-                      console.log(`[ChatRoom] Message ${latestMessage.id} already in list`);
-                      return prev;
-                    }
-                    
-                    console.log(`[ChatRoom] Adding new message ${latestMessage.id} to active room`);
-                    const updated = [...prev, latestMessage].sort((a, b) => 
-                      new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
-                    );
-                    // Also add to notification context
-                    addMessageToRoom(room.id, latestMessage);
-                    return updated;
-                  });
-                  
-                  return; // Success, exit retry loop
-                }
-              } catch (err) {
-                console.error(`[ChatRoom] Failed to fetch messages (attempt ${i + 1}):`, err);
-                if (i < retries - 1) {
-                  await new Promise(resolve => setTimeout(resolve, delay));
-                }
-              }
-            }
-          };
-          
-          // Start fetching with retry
-          fetchWithRetry();
+        const parsed = JSON.parse(event.data);
+        // The server may coalesce queued frames into a single array frame
+        const frames: any[] = Array.isArray(parsed) ? parsed : [parsed];
+        frames.filter((frame) => frame.type === 'ack').forEach((ack) => {
+          pendingAcksRef.current.get(ack.correlationId)?.(ack.accepted);
+          pendingAcksRef.current.delete(ack.correlationId);
+        });
+        if (frames.every((frame) => frame.type === 'ack')) {
+          return;
+        }
+        const chatFrames: ChatMessageFrame[] = frames.filter((frame) => frame.message && frame.chatRoomName === room.id &&
+            frame.message !== 'Connected' && frame.message !== 'Disconnected');
+        if (replayBufferRef.current !== null) {
+          replayBufferRef.current.push(...chatFrames);
         } else {
-          console.log(`[ChatRoom] Ignoring message:`, data);
+          applyFrames(chatFrames);
         }
+
+        frames.filter((frame) => frame.chatRoomId === room.id).forEach((frame) => {
+          if (frame.type !== 'replayed' && frame.type !== 'resync') {
+            return;
+          }
+          // The replay is over: apply what was held back, in seq order
+          const buffered = replayBufferRef.current ?? [];
+          replayBufferRef.current = null;
+          applyFrames(buffered);
+          if (frame.type === 'resync') {
+            // The server couldn't replay what we missed while disconnected
+            catchUp();
+          }
+        });
       } catch (err) {
         console.error('[ChatRoom] Failed to parse WebSocket message:', err, event.data);
       }
@@ -193,16 +248,57 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
     };
   };
 
+  const loadOlderMessages = async () => {
+    if (!olderCursor || loadingOlder) return;
+    setLoadingOlder(true);
+    try {
+      const page = await messageApi.getMessagePage(room.id, olderCursor);
+      setMessages((prev) => {
+        const existingIds = new Set(prev.map(m => m.id));
+        return [...page.messages.filter(m => !existingIds.has(m.id)), ...prev];
+      });
+      setOlderCursor(page.before);
+    } catch (err) {
+      console.error('Failed to load older messages:', err);
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
   const handleSendMessage = async (e: React.FormEvent) => {
     e.preventDefault();
     if (!newMessage.trim() || sending) return;
 
     setSending(true);
     try {
-      await messageApi.sendMessage(room.id, { message: newMessage });
+      const websocket = wsRef.current;
+      if (websocket && websocket.readyState === WebSocket.OPEN) {
+        // Send over the open socket; the server publishes it and acks with our correlation id
+        const correlationId = crypto.randomUUID();
+        const accepted = await new Promise<boolean>((resolve) => {
+          pendingAcksRef.current.set(correlationId, resolve);
+          websocket.send(JSON.stringify({ message: newMessage, correlationId }));
+          setTimeout(() => {
+            if (pendingAcksRef.current.delete(correlationId)) {
+              resolve(false);
+            }
+          }, 5000);
+        });
+        if (!accepted) {
+          throw new Error('Message was not acknowledged');
+        }
+      } else {
+        await messageApi.sendMessage(room.id, { message: newMessage });
+      }
       setNewMessage('');
-      // Reload messages to get the latest
-      await loadMessages();
+      // Merge the newest page so older pages already loaded stay in place
+      const latest = await messageApi.getMessages(room.id);
+      setMessages((prev) => {
+        const existingIds = new Set(prev.map(m => m.id));
+        return [...prev, ...latest.filter(m => !existingIds.has(m.id))].sort((a, b) =>
+          new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
+        );
+      });
     } catch (err) {
       console.error('Failed to send message:', err);
     } finally {
@@ -252,6 +348,11 @@ const ChatRoom: React.FC<ChatRoomProps> = ({ room, onBack }) => {
         </div>
       </div>
       <div style={styles.messagesContainer}>
+        {olderCursor && (
+          <button onClick={loadOlderMessages} disabled={loadingOlder} style={styles.loadOlderButton}>
+            {loadingOlder ? 'Loading...' : 'Load older messages'}
+          </button>
+        )}
         {messages.map((message) => (
           <div
             key={message.id}
@@ -321,6 +422,17 @@ const styles: { [key: string]: React.CSSProperties } = {
     justifyContent: 'space-between',
     alignItems: 'center',
   },
+  loadOlderButton: {
+    display: 'block',
+    margin: '0 auto 0.5rem',
+    padding: '0.375rem 0.75rem',
+    backgroundColor: 'transparent',
+    color: '#007bff',
+    border: '1px solid #007bff',
+    borderRadius: '4px',
+    cursor: 'pointer',
+    fontSize: '0.8125rem',
+  },
   addUserButton: {
     padding: '0.5rem 1rem',
     backgroundColor: '#28a745',
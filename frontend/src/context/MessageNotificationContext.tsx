@@ -1,7 +1,7 @@
 import React, { createContext, useContext, useState, useEffect, useCallback, useRef, ReactNode } from 'react';
 import { useAuth } from './AuthContext';
 import { messageApi } from '../services/api';
-import type { ChatMessage, ChatRoom } from '../types';
+import type { ChatMessage, ChatMessageFrame, ChatRoom } from '../types';
 
 interface MessageNotificationContextType {
   unreadCounts: Record<string, number>;
@@ -35,184 +35,231 @@ export const MessageNotificationProvider: React.FC<MessageNotificationProviderPr
 }) => {
   const [unreadCounts, setUnreadCounts] = useState<Record<string, number>>({});
   const [roomMessages, setRoomMessages] = useState<Record<string, ChatMessage[]>>({});
-  const websocketsRef = useRef<Record<string, WebSocket>>({});
+  const socketRef = useRef<WebSocket | null>(null);
+  const subscribedRef = useRef<Set<string>>(new Set());
+  // Highest message sequence seen per room, sent with resubscribes so the server replays the gap
+  const lastSeqRef = useRef<Record<string, number>>({});
+  // Per room, chat frames held back until its replay ends, so live frames can't overtake replayed ones
+  const replayBuffersRef = useRef<Record<string, ChatMessageFrame[]>>({});
+  const roomIdsRef = useRef<string[]>([]);
+  const currentRoomIdRef = useRef<string | null>(currentRoomId);
   const { user } = useAuth();
 
-  // Initialize WebSocket connections for all rooms
   useEffect(() => {
-    const wsConnections: Record<string, WebSocket> = {};
-    const reconnectTimeouts: Record<string, NodeJS.Timeout> = {};
+    currentRoomIdRef.current = currentRoomId;
+  }, [currentRoomId]);
 
-    const connectWebSocketForRoom = (room: ChatRoom) => {
-      // Skip if already connected or connecting
-      if (websocketsRef.current[room.id]) {
-        const currentState = websocketsRef.current[room.id].readyState;
-        if (currentState === WebSocket.OPEN || currentState === WebSocket.CONNECTING) {
+  // Fetches the room's newest message after the server reports a gap it couldn't replay
+  const handleRoomMessage = useCallback(async (roomId: string, retries = 3, delay = 200) => {
+    for (let i = 0; i < retries; i++) {
+      try {
+        const messages = await messageApi.getMessages(roomId);
+        if (messages && messages.length > 0) {
+          const latestMessage = messages[messages.length - 1];
+
+          setRoomMessages((prev) => {
+            const existing = prev[roomId] || [];
+            if (existing.some((m) => m.id === latestMessage.id)) {
+              return prev;
+            }
+            // Always add to roomMessages, even if room is active (ChatRoom component will pick it up)
+            return {
+              ...prev,
+              [roomId]: [...existing, latestMessage].sort((a, b) =>
+                new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
+              ),
+            };
+          });
+
+          // Increment unread count if room is not currently active
+          if (currentRoomIdRef.current !== roomId) {
+            setUnreadCounts((prev) => ({
+              ...prev,
+              [roomId]: (prev[roomId] || 0) + 1,
+            }));
+          }
           return;
         }
-        // If closed or closing, clean up first
-        if (currentState === WebSocket.CLOSED || currentState === WebSocket.CLOSING) {
-          delete websocketsRef.current[room.id];
+      } catch (err) {
+        console.error(`Failed to fetch messages for room ${roomId} (attempt ${i + 1}):`, err);
+        if (i < retries - 1) {
+          await new Promise(resolve => setTimeout(resolve, delay));
         }
       }
+    }
+  }, []);
+
+  // Adds a room's chat frames in seq order, dropping any at or below the last seq already applied
+  const applyFrames = useCallback((roomId: string, frames: ChatMessageFrame[]) => {
+    const fresh = [...frames]
+      .sort((a, b) => (a.seq ?? 0) - (b.seq ?? 0))
+      .filter((frame) => {
+        if (typeof frame.seq !== 'number') {
+          return true;
+        }
+        const lastSeq = lastSeqRef.current[roomId];
+        if (lastSeq !== undefined && frame.seq <= lastSeq) {
+          return false;
+        }
+        lastSeqRef.current[roomId] = frame.seq;
+        return true;
+      })
+      .map(messageApi.fromFrame);
+    if (fresh.length === 0) {
+      return;
+    }
+    setRoomMessages((prev) => {
+      const existing = prev[roomId] || [];
+      const existingIds = new Set(existing.map((m) => m.id));
+      const added = fresh.filter((m) => !existingIds.has(m.id));
+      if (added.length === 0) {
+        return prev;
+      }
+      // Always add to roomMessages, even if room is active (ChatRoom component will pick it up)
+      return {
+        ...prev,
+        [roomId]: [...existing, ...added].sort((a, b) =>
+          new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
+        ),
+      };
+    });
+    if (currentRoomIdRef.current !== roomId) {
+      setUnreadCounts((prev) => ({
+        ...prev,
+        [roomId]: (prev[roomId] || 0) + fresh.length,
+      }));
+    }
+  }, []);
 
-      // Clear any pending reconnection for this room
-      if (reconnectTimeouts[room.id]) {
-        clearTimeout(reconnectTimeouts[room.id]);
-        delete reconnectTimeouts[room.id];
+  // Brings the socket's subscriptions in line with the current room list
+  const syncSubscriptions = useCallback(() => {
+    const websocket = socketRef.current;
+    if (!websocket || websocket.readyState !== WebSocket.OPEN) {
+      return;
+    }
+    const wanted = new Set(roomIdsRef.current);
+    wanted.forEach((roomId) => {
+      if (!subscribedRef.current.has(roomId)) {
+        if (lastSeqRef.current[roomId] !== undefined) {
+          replayBuffersRef.current[roomId] = [];
+        }
+        websocket.send(JSON.stringify({ type: 'subscribe', chatRoomId: roomId, since: lastSeqRef.current[roomId] }));
+        subscribedRef.current.add(roomId);
       }
+    });
+    Array.from(subscribedRef.current).forEach((roomId) => {
+      if (!wanted.has(roomId)) {
+        websocket.send(JSON.stringify({ type: 'unsubscribe', chatRoomId: roomId }));
+        subscribedRef.current.delete(roomId);
+        delete replayBuffersRef.current[roomId];
+      }
+    });
+  }, []);
 
-      const wsUrl = `ws://localhost:8080/server/message/${room.id}`;
-      const websocket = new WebSocket(wsUrl);
+  useEffect(() => {
+    roomIdsRef.current = rooms.map(r => r.id);
+    syncSubscriptions();
+  }, [rooms.map(r => r.id).join(','), syncSubscriptions]);
+
+  // A single multiplexed socket carries notifications for every room
+  useEffect(() => {
+    if (!user) {
+      return;
+    }
+    let closedByUs = false;
+    let reconnectTimeout: NodeJS.Timeout | null = null;
+
+    const connect = () => {
+      // Browsers can't send an Authorization header on the upgrade, so the JWT goes in the query string
+      const token = encodeURIComponent(localStorage.getItem('token') ?? '');
+      const websocket = new WebSocket(`ws://localhost:8080/server/stream?token=${token}`);
+      socketRef.current = websocket;
 
-      // Add connection timeout
       const connectionTimeout = setTimeout(() => {
         if (websocket.readyState === WebSocket.CONNECTING) {
-          console.error(`WebSocket connection timeout for room ${room.id}`);
+          console.error('Notification WebSocket connection timeout');
           websocket.close();
         }
       }, 5000); // 5 second timeout
 
       websocket.onopen = () => {
         clearTimeout(connectionTimeout);
-        console.log(`WebSocket connected for room ${room.id}`);
-        // Clear any pending reconnection on successful connection
-        if (reconnectTimeouts[room.id]) {
-          clearTimeout(reconnectTimeouts[room.id]);
-          delete reconnectTimeouts[room.id];
-        }
+        // Subscriptions don't survive a reconnect, so resubscribe to everything
+        subscribedRef.current = new Set();
+        replayBuffersRef.current = {};
+        syncSubscriptions();
       };
 
-      websocket.onmessage = async (event) => {
+      websocket.onmessage = (event) => {
         try {
-          const data = JSON.parse(event.data);
-          console.log(`WebSocket message received for room ${room.id}:`, data);
-          
-          // Check if this is a real message (not just connection/disconnection)
-          if (data.message && data.chatRoomName === room.id && 
-              data.message !== 'Connected' && data.message !== 'Disconnected') {
-            console.log(`Processing new message for room ${room.id}`);
-            
-            // Retry mechanism to handle timing issues with database saves
-            const fetchWithRetry = async (retries = 3, delay = 200) => {
-              for (let i = 0; i < retries; i++) {
-                try {
-                  // Fetch the full message details from the API to get the complete message object
-                  const messages = await messageApi.getMessages(room.id);
-                  if (messages && messages.length > 0) {
-                    const latestMessage = messages[messages.length - 1];
-                    console.log(`Latest message from API (attempt ${i + 1}):`, latestMessage);
-                    
-                    // Check if we already have this message
-                    setRoomMessages((prev) => {
-                      const existing = prev[room.id] || [];
-                      if (existing.some((m) => m.id === latestMessage.id)) {
-                        console.log(`Message ${latestMessage.id} already exists, skipping`);
-                        return prev;
-                      }
-                      console.log(`Adding new message ${latestMessage.id} to room ${room.id}`);
-                      // Always add to roomMessages, even if room is active (ChatRoom component will pick it up)
-                      return {
-                        ...prev,
-                        [room.id]: [...existing, latestMessage].sort((a, b) => 
-                          new Date(a.timeSent).getTime() - new Date(b.timeSent).getTime()
-                        ),
-                      };
-                    });
-                    
-                    // Increment unread count if room is not currently active
-                    if (currentRoomId !== room.id) {
-                      console.log(`Incrementing unread count for room ${room.id}`);
-                      setUnreadCounts((prev) => ({
-                        ...prev,
-                        [room.id]: (prev[room.id] || 0) + 1,
-                      }));
-                    } else {
-                      console.log(`Room ${room.id} is active, not incrementing unread count (but message added to roomMessages)`);
-                    }
-                    
-                    return; // Success, exit retry loop
-                  }
-                } catch (err) {
-                  console.error(`Failed to fetch messages (attempt ${i + 1}):`, err);
-                  if (i < retries - 1) {
-                    await new Promise(resolve => setTimeout(resolve, delay));
-                  }
-                }
-              }
-            };
-            
-            // Start fetching with retry
-            fetchWithRetry();
-          } else {
-            console.log(`Ignoring message (connection/disconnection or wrong room):`, data);
-          }
+          const parsed = JSON.parse(event.data);
+          // The server may coalesce queued frames into a single array frame
+          const frames: any[] = Array.isArray(parsed) ? parsed : [parsed];
+          const chatFrames: Record<string, ChatMessageFrame[]> = {};
+          const replayEnds: any[] = [];
+          frames.forEach((frame) => {
+            if (frame.type === 'error') {
+              console.error(`Notification stream error for room ${frame.chatRoomId}:`, frame.reason);
+            } else if (frame.type === 'replayed' || frame.type === 'resync') {
+              replayEnds.push(frame);
+            } else if (frame.message && frame.chatRoomName && roomIdsRef.current.includes(frame.chatRoomName) &&
+                frame.message !== 'Connected' && frame.message !== 'Disconnected') {
+              chatFrames[frame.chatRoomName] = [...(chatFrames[frame.chatRoomName] ?? []), frame];
+            }
+          });
+          Object.entries(chatFrames).forEach(([roomId, roomFrames]) => {
+            const buffer = replayBuffersRef.current[roomId];
+            if (buffer) {
+              buffer.push(...roomFrames);
+            } else {
+              applyFrames(roomId, roomFrames);
+            }
+          });
+          // Replay ends are handled last: a coalesced frame can carry the catch-up ahead of its marker
+          replayEnds.forEach((frame) => {
+            const buffered = replayBuffersRef.current[frame.chatRoomId] ?? [];
+            delete replayBuffersRef.current[frame.chatRoomId];
+            applyFrames(frame.chatRoomId, buffered);
+            if (frame.type === 'resync' && roomIdsRef.current.includes(frame.chatRoomId)) {
+              // The gap couldn't be replayed; fetch the newest message instead
+              handleRoomMessage(frame.chatRoomId);
+            }
+          });
         } catch (err) {
           console.error('Failed to parse WebSocket message:', err, event.data);
         }
       };
 
       websocket.onerror = (error) => {
-        console.error(`WebSocket error for room ${room.id}:`, error);
+        console.error('Notification WebSocket error:', error);
       };
 
       websocket.onclose = (event) => {
-        console.log(`WebSocket disconnected for room ${room.id}`, event.code, event.reason);
-        
-        // Only attempt to reconnect if the close was not intentional
+        clearTimeout(connectionTimeout);
+        if (socketRef.current === websocket) {
+          socketRef.current = null;
+        }
         // Code 1000 = normal closure
-        // Don't reconnect if the room is no longer in the list
-        const roomStillExists = rooms.some(r => r.id === room.id);
-        if (roomStillExists && event.code !== 1000) {
-          console.log(`Attempting to reconnect WebSocket for room ${room.id} in 3 seconds...`);
-          reconnectTimeouts[room.id] = setTimeout(() => {
-            // Double-check the room still exists before reconnecting
-            const currentRooms = rooms; // Capture current rooms at reconnect time
-            if (currentRooms.some(r => r.id === room.id)) {
-              console.log(`Reconnecting WebSocket for room ${room.id}...`);
-              connectWebSocketForRoom(room);
-            } else {
-              console.log(`Room ${room.id} no longer exists, skipping reconnection`);
-            }
-          }, 3000);
+        if (!closedByUs && event.code !== 1000) {
+          reconnectTimeout = setTimeout(connect, 3000);
         }
-        
-        delete websocketsRef.current[room.id];
       };
-
-      wsConnections[room.id] = websocket;
-      websocketsRef.current[room.id] = websocket;
     };
 
-    // Connect WebSocket for each room
-    rooms.forEach((room) => {
-      connectWebSocketForRoom(room);
-    });
+    connect();
 
-    // Close connections for rooms that are no longer in the list
-    Object.keys(websocketsRef.current).forEach((roomId) => {
-      if (!rooms.some((r) => r.id === roomId)) {
-        const ws = websocketsRef.current[roomId];
-        if (ws && ws.readyState === WebSocket.OPEN) {
-          ws.close();
-        }
-        delete websocketsRef.current[roomId];
-      }
-    });
-
-    // Cleanup on unmount or when dependencies change
     return () => {
-      // Clear all reconnection timeouts
-      Object.values(reconnectTimeouts).forEach(timeout => clearTimeout(timeout));
-      
-      // Close all connections created in this effect
-      Object.values(wsConnections).forEach((ws) => {
-        if (ws && (ws.readyState === WebSocket.OPEN || ws.readyState === WebSocket.CONNECTING)) {
-          ws.close(1000, 'Component unmounting'); // Normal closure
-        }
-      });
+      closedByUs = true;
+      if (reconnectTimeout) {
+        clearTimeout(reconnectTimeout);
+      }
+      const websocket = socketRef.current;
+      if (websocket && (websocket.readyState === WebSocket.OPEN || websocket.readyState === WebSocket.CONNECTING)) {
+        websocket.close(1000, 'Component unmounting'); // Normal closure
+      }
+      socketRef.current = null;
     };
-  }, [rooms.map(r => r.id).join(','), currentRoomId]); // Reconnect when room list changes
+  }, [user, syncSubscriptions, handleRoomMessage, applyFrames]);
 
   const incrementUnreadCount = useCallback((roomId: string) => {
     setUnreadCounts((prev) => ({
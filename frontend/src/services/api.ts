@@ -7,7 +7,9 @@ import type {
   ChatRoom, 
   ChatRoomCreateRequest,
   ChatMessage,
-  ChatMessageSendRequest
+  ChatMessageFrame,
+  ChatMessageSendRequest,
+  MessagePage
 } from '../types';
 
 const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8080';
@@ -96,11 +98,42 @@ export const chatRoomApi = {
 };
 
 export const messageApi = {
+  // Newest page of the room's history
   getMessages: async (chatRoomId: string): Promise<ChatMessage[]> => {
-    const response = await api.get<ChatMessage[]>(`/message/chatRoom/${chatRoomId}`);
+    const page = await messageApi.getMessagePage(chatRoomId);
+    return page.messages;
+  },
+
+  // "before" pages back towards older messages, "after" forward towards newer ones
+  getMessagePage: async (chatRoomId: string, before?: string, after?: string): Promise<MessagePage> => {
+    const response = await api.get<MessagePage>(`/message/chatRoom/${chatRoomId}/history`, {
+      params: before ? { before } : after ? { after } : undefined,
+    });
     return response.data;
   },
 
+  // Pages forward from the cursor until the newest message, so a gap of any length is filled
+  getMessagesAfter: async (chatRoomId: string, after: string): Promise<{ messages: ChatMessage[]; after: string }> => {
+    const messages: ChatMessage[] = [];
+    let cursor = after;
+    for (;;) {
+      const page = await messageApi.getMessagePage(chatRoomId, undefined, cursor);
+      if (page.messages.length === 0 || !page.after) {
+        return { messages, after: cursor };
+      }
+      messages.push(...page.messages);
+      cursor = page.after;
+    }
+  },
+
+  fromFrame: (frame: ChatMessageFrame): ChatMessage => ({
+    id: frame.id,
+    userId: frame.author ?? { id: '', username: frame.username, firstName: frame.username, lastName: '' },
+    message: frame.message,
+    chatRoomId: frame.chatRoomName,
+    timeSent: frame.timeSent,
+  }),
+
   sendMessage: async (chatRoomId: string, message: ChatMessageSendRequest): Promise<ChatMessage> => {
     const response = await api.post<ChatMessage>(`/message/chatRoom/${chatRoomId}`, message);
     return response.data;
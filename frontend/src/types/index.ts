@@ -39,14 +39,32 @@ export interface ChatRoomCreateRequest {
 
 export interface ChatMessage {
   id: string;
-  userId: User;
+  userId: Pick<User, 'id' | 'username' | 'firstName' | 'lastName'>;
   message: string;
+  chatRoomId?: string;
   chatRoomDTO?: {
     id: string;
   };
   timeSent: string;
 }
 
+// A message as the WebSocket delivers it; seq orders a room's messages for resuming
+export interface ChatMessageFrame {
+  id: string;
+  username: string;
+  author?: Pick<User, 'id' | 'username' | 'firstName' | 'lastName'>;
+  message: string;
+  chatRoomName: string;
+  timeSent: string;
+  seq?: number;
+}
+
+export interface MessagePage {
+  messages: ChatMessage[];
+  before: string | null;
+  after: string | null;
+}
+
 export interface ChatMessageSendRequest {
   message: string;
 }
@@ -3,4 +3,6 @@ package com.testapp.config;
 public class Constants {
 
     public static final String CHAT_MESSAGE_TOPIC = "chat-messages";
+    public static final String CHAT_MESSAGE_RETRY_TOPIC = "chat-messages-retry";
+    public static final String CHAT_MESSAGE_DLT_TOPIC = "chat-messages-dlt";
 }
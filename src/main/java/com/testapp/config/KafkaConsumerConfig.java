@@ -2,29 +2,145 @@ package com.testapp.config;
 
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.ChatMessageKey;
+import com.testapp.kafka.ConsumerFailureMetrics;
+import com.testapp.kafka.DeliveryMode;
+import com.testapp.kafka.serialization.ChatMessageDeserializer;
+import com.testapp.kafka.serialization.ChatMessageKeyDeserializer;
+import com.testapp.kafka.serialization.RoomFilteringDeserializer;
+import com.testapp.kafka.serialization.SerializationFormat;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
 
 @Configuration
 @EnableKafka
 public class KafkaConsumerConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(KafkaConsumerConfig.class);
+
     @Autowired
     private KafkaTopicConfig kafkaConfig;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ConsumerFailureMetrics failureMetrics;
+
+    @Autowired
+    private KafkaTemplate<Object, Object> kafkaDeadLetterTemplate;
+
+    // One consumer thread per partition by default; 0 means "use the topic's partition count"
+    @Value(value = "${chat.kafka.consumer.concurrency:0}")
+    private int concurrency;
+
+    @Value(value = "${chat.kafka.consumer.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    // In batch mode the broker holds a fetch for up to linger-ms until min-bytes have accumulated,
+    // so bursts arrive as one poll instead of a poll per record
+    @Value(value = "${chat.kafka.consumer.batch.linger-ms:50}")
+    private int batchLingerMs;
+
+    @Value(value = "${chat.kafka.consumer.batch.min-bytes:16384}")
+    private int batchMinBytes;
+
+    @Value(value = "${chat.kafka.consumer.batch.max-records:500}")
+    private int batchMaxRecords;
+
+    // Ignored when batch mode is enabled
+    @Value(value = "${chat.kafka.consumer.keyed.enabled:false}")
+    private boolean keyedEnabled;
+
+    @Value(value = "${chat.kafka.delivery.mode:BROADCAST}")
+    private DeliveryMode deliveryMode;
+
+    // Distinguishes this instance's delivery group; it must survive restarts, or every start
+    // leaves another abandoned group behind on the broker. Defaults to the host name and port
+    @Value(value = "${chat.kafka.delivery.instance-id:}")
+    private String instanceId;
+
+    @Value(value = "${server.port:8080}")
+    private int serverPort;
+
+    // Only takes effect in BROADCAST mode, where every other instance still receives the skipped records
+    @Value(value = "${chat.kafka.delivery.filter-by-room:true}")
+    private boolean filterByRoom;
+
+    @Value(value = "${chat.kafka.persistence.group-id:chat-persistence}")
+    private String persistenceGroupId;
+
+    @Value(value = "${chat.kafka.persistence.max-records:1000}")
+    private int persistenceMaxRecords;
+
+    // Retries of a failed batch write on the main topic before its records move to the retry topic
+    @Value(value = "${chat.kafka.persistence.inline-attempts:2}")
+    private int persistenceInlineAttempts;
+
+    // Its own group, so rebalances and slow retries never hold up the main persistence consumers
+    @Value(value = "${chat.kafka.persistence.retry.group-id:chat-persistence-retry}")
+    private String retryGroupId;
+
+    @Value(value = "${chat.kafka.persistence.retry.initial-interval-ms:1000}")
+    private long retryInitialIntervalMs;
+
+    @Value(value = "${chat.kafka.persistence.retry.max-elapsed-ms:60000}")
+    private long retryMaxElapsedMs;
+
     @Bean
     public ConsumerFactory<ChatMessageKey, ChatMessageDTO> consumerFactory() {
-        return new DefaultKafkaConsumerFactory<>(
-                kafkaConfig.buildConsumerProperties(),
-                new JsonDeserializer<>(ChatMessageKey.class),
-                new JsonDeserializer<>(ChatMessageDTO.class)
-        );
+        Map<String, Object> props = kafkaConfig.buildConsumerProperties();
+        if (deliveryMode == DeliveryMode.BROADCAST) {
+            // A group of its own gives this instance every partition; it only needs messages sent
+            // from now on, since clients load earlier ones from history
+            props.put(ConsumerConfig.GROUP_ID_CONFIG, props.get(ConsumerConfig.GROUP_ID_CONFIG) + "-" + resolveInstanceId());
+            props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        }
+        if (batchEnabled) {
+            props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchLingerMs);
+            props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+            props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxRecords);
+        }
+        return buildConsumerFactory(props, deliveryMode == DeliveryMode.BROADCAST && filterByRoom);
     }
 
     @Bean
@@ -32,6 +148,152 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(batchEnabled);
+        // Each partition is owned by a single listener thread, so per-partition order is preserved
+        factory.setConcurrency(concurrency > 0 ? concurrency : kafkaConfig.getPartitions());
+        // Records for rooms filtered out by RoomFilteringDeserializer arrive with a null value
+        factory.setRecordFilterStrategy(this::isUndelivered);
+        // A record that failed to deserialize also has a null value; catch it before the filter does
+        factory.getContainerProperties().setCheckDeserExWhenValueNull(true);
+        factory.setCommonErrorHandler(deliveryErrorHandler());
+        if (keyedEnabled && !batchEnabled) {
+            // Keyed workers finish records out of order; KKeyedConsumer only acknowledges a record
+            // once every earlier one on its partition is done. Async acks would do the same but pause
+            // the partition until a poll's records all finish, so one slow room would stall the rest
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        }
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<ChatMessageKey, ChatMessageDTO> persistenceConsumerFactory() {
+        // A separate group so every message is persisted exactly once, whatever the delivery mode
+        Map<String, Object> props = kafkaConfig.buildConsumerProperties();
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, persistenceGroupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, persistenceMaxRecords);
+        return buildConsumerFactory(props, false);
+    }
+
+    @Bean
+    public ConsumerFactory<ChatMessageKey, ChatMessageDTO> persistenceRetryConsumerFactory() {
+        Map<String, Object> props = kafkaConfig.buildConsumerProperties();
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, retryGroupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return buildConsumerFactory(props, false);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> chatMessagePersistenceContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(persistenceConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency > 0 ? concurrency : kafkaConfig.getPartitions());
+        // A failing write is retried briefly in place, then handed to the retry topic so the partition moves on
+        factory.setCommonErrorHandler(persistenceErrorHandler(new FixedBackOff(0, Math.max(0, persistenceInlineAttempts - 1))));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> chatMessageRetryContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(persistenceRetryConsumerFactory());
+        factory.setConcurrency(concurrency > 0 ? concurrency : kafkaConfig.getPartitions());
+        factory.getContainerProperties().setCheckDeserExWhenValueNull(true);
+        // Backing off here only holds up the retry topic; records still failing go to the dead-letter topic
+        ExponentialBackOff backOff = new ExponentialBackOff(retryInitialIntervalMs, 2.0);
+        backOff.setMaxElapsedTime(retryMaxElapsedMs);
+        factory.setCommonErrorHandler(persistenceErrorHandler(backOff));
+        return factory;
+    }
+
+    private String resolveInstanceId() {
+        if (!instanceId.isBlank()) {
+            return instanceId;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            // Unique but not stable: each start of this instance leaves its previous group behind
+            host = UUID.randomUUID().toString();
+            log.warn("Could not resolve the host name for the delivery group; set chat.kafka.delivery.instance-id "
+                    + "to a stable, per-instance value", e);
+        }
+        String resolved = host + "-" + serverPort;
+        log.info("No chat.kafka.delivery.instance-id set, delivering as instance {}", resolved);
+        return resolved;
+    }
+
+    private boolean isUndelivered(ConsumerRecord<ChatMessageKey, ChatMessageDTO> record) {
+        if (record.value() != null) {
+            return false;
+        }
+        // Batch listeners see undeserializable records here rather than in the error handler
+        if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+            failureMetrics.deserializationFailed(ConsumerFailureMetrics.SKIPPED);
+        }
+        return true;
+    }
+
+    private DefaultErrorHandler deliveryErrorHandler() {
+        // In BROADCAST mode every instance sees every record, so delivery only skips what it can't
+        // handle; the persistence group, which sees each record once, dead-letters it
+        return new DefaultErrorHandler((record, exception) -> {
+            failureMetrics.failed(exception, ConsumerFailureMetrics.SKIPPED);
+            log.warn("Skipping chat message {} that could not be delivered", ConsumerFailureMetrics.describe(record), exception);
+        }, new FixedBackOff(0, 0));
+    }
+
+    private DefaultErrorHandler persistenceErrorHandler(BackOff backOff) {
+        // Undeserializable records and records that already failed on the retry topic go to the
+        // dead-letter topic; anything else gets another chance on the retry topic
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaDeadLetterTemplate,
+                (record, exception) -> new TopicPartition(deadLetterTopic(record, exception), record.partition()));
+        // Deserialization failures are not retryable, so they are recovered on first sight
+        return new DefaultErrorHandler((record, exception) -> {
+            String topic = deadLetterTopic(record, exception);
+            failureMetrics.failed(exception, CHAT_MESSAGE_RETRY_TOPIC.equals(topic)
+                    ? ConsumerFailureMetrics.RETRIED : ConsumerFailureMetrics.DEAD_LETTERED);
+            log.warn("Moving chat message {} to {}", ConsumerFailureMetrics.describe(record), topic, exception);
+            recoverer.accept(record, exception);
+        }, backOff);
+    }
+
+    private static String deadLetterTopic(ConsumerRecord<?, ?> record, Exception exception) {
+        if (ConsumerFailureMetrics.isDeserializationFailure(exception) || CHAT_MESSAGE_RETRY_TOPIC.equals(record.topic())) {
+            return CHAT_MESSAGE_DLT_TOPIC;
+        }
+        return CHAT_MESSAGE_RETRY_TOPIC;
+    }
+
+    private ConsumerFactory<ChatMessageKey, ChatMessageDTO> buildConsumerFactory(Map<String, Object> props, boolean filterByRoom) {
+        Deserializer<ChatMessageKey> keyDeserializer;
+        Deserializer<ChatMessageDTO> valueDeserializer;
+        if (kafkaConfig.getSerializationFormat() == SerializationFormat.BINARY) {
+            // The binary deserializers also read JSON records, so switching formats needs no topic migration
+            keyDeserializer = new ChatMessageKeyDeserializer();
+            valueDeserializer = new ChatMessageDeserializer();
+        } else {
+            keyDeserializer = new JsonDeserializer<>(ChatMessageKey.class);
+            valueDeserializer = new JsonDeserializer<>(ChatMessageDTO.class);
+        }
+        // A record that can't be decoded comes through with a null value and the error in a header,
+        // instead of failing every poll of its partition
+        keyDeserializer = new ErrorHandlingDeserializer<>(keyDeserializer);
+        valueDeserializer = new ErrorHandlingDeserializer<>(valueDeserializer);
+        if (filterByRoom) {
+            // Rooms still held in the recent message cache keep receiving messages so it stays current
+            valueDeserializer = new RoomFilteringDeserializer<>(valueDeserializer,
+                    room -> !sessionRegistry.getSessions(room).isEmpty() || recentMessageCache.contains(room),
+                    recentMessageCache::skipped, meterRegistry);
+        }
+        DefaultKafkaConsumerFactory<ChatMessageKey, ChatMessageDTO> factory =
+                new DefaultKafkaConsumerFactory<>(props, keyDeserializer, valueDeserializer);
+        // Publishes the client's fetch metrics, including per-partition records-lag
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
         return factory;
     }
 }
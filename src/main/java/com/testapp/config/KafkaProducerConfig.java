@@ -2,27 +2,46 @@ package com.testapp.config;
 
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.ChatMessageKey;
+import com.testapp.kafka.ChatRoomPartitioner;
+import com.testapp.kafka.serialization.ChatMessageKeySerializer;
+import com.testapp.kafka.serialization.ChatMessageSerializer;
+import com.testapp.kafka.serialization.SerializationFormat;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
+@EnableConfigurationProperties(KafkaProducerProperties.class)
 public class KafkaProducerConfig {
 
     private final KafkaTopicConfig kafkaConfig;
+    private final KafkaProducerProperties producerProperties;
 
     @Bean
     public ProducerFactory<ChatMessageKey, ChatMessageDTO> producerChatMessageFactory() {
         Map<String, Object> props = kafkaConfig.buildProducerProperties();
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.putAll(producerProperties.buildProducerProperties());
+        if (kafkaConfig.getSerializationFormat() == SerializationFormat.BINARY) {
+            props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ChatMessageKeySerializer.class);
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ChatMessageSerializer.class);
+        } else {
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        }
+        if (producerProperties.isRoomAffinity()) {
+            props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, ChatRoomPartitioner.class);
+        }
         return new DefaultKafkaProducerFactory<>(props);
     }
 
@@ -31,5 +50,31 @@ public class KafkaProducerConfig {
         return new KafkaTemplate<>(producerChatMessageFactory());
     }
 
+    /**
+     * Republishes failed records to the retry and dead-letter topics. Records that could not be
+     * deserialized are sent on as their original bytes, all others in the configured format.
+     */
+    @Bean
+    public KafkaTemplate<Object, Object> kafkaDeadLetterTemplate() {
+        Serializer<?> keySerializer;
+        Serializer<?> valueSerializer;
+        if (kafkaConfig.getSerializationFormat() == SerializationFormat.BINARY) {
+            keySerializer = new ChatMessageKeySerializer();
+            valueSerializer = new ChatMessageSerializer();
+        } else {
+            keySerializer = new JsonSerializer<>();
+            valueSerializer = new JsonSerializer<>();
+        }
+        Map<String, Object> props = kafkaConfig.buildProducerProperties();
+        props.putAll(producerProperties.buildProducerProperties());
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props,
+                new DelegatingByTypeSerializer(Map.of(
+                        byte[].class, new ByteArraySerializer(),
+                        ChatMessageKey.class, keySerializer)),
+                new DelegatingByTypeSerializer(Map.of(
+                        byte[].class, new ByteArraySerializer(),
+                        ChatMessageDTO.class, valueSerializer))));
+    }
+
     //TODO user notifications topic
 }
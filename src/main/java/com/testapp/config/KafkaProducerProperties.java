@@ -0,0 +1,58 @@
+package com.testapp.config;
+
+import lombok.Data;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tuning for the chat message producer. A profile supplies a coherent set of defaults and
+ * any individually configured value overrides it.
+ */
+@Data
+@ConfigurationProperties(prefix = "chat.kafka.producer")
+public class KafkaProducerProperties {
+
+    public enum Profile {
+        /** Kafka client defaults. */
+        DEFAULT,
+        /** Larger, longer-lingering, lz4-compressed batches with idempotent acks=all delivery. */
+        HIGH_THROUGHPUT
+    }
+
+    private Profile profile = Profile.DEFAULT;
+
+    // Keep each chat room on a single partition so its messages stay ordered
+    private boolean roomAffinity = true;
+
+    private Integer lingerMs;
+    private Integer batchSize;
+    private String compressionType;
+    private String acks;
+    private Boolean enableIdempotence;
+
+    public Map<String, Object> buildProducerProperties() {
+        Map<String, Object> configProps = new HashMap<>();
+        if (profile == Profile.HIGH_THROUGHPUT) {
+            configProps.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+            configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 128 * 1024);
+            configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+            configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        }
+        putIfSet(configProps, ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        putIfSet(configProps, ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        putIfSet(configProps, ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        putIfSet(configProps, ProducerConfig.ACKS_CONFIG, acks);
+        putIfSet(configProps, ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, enableIdempotence);
+        return configProps;
+    }
+
+    private static void putIfSet(Map<String, Object> configProps, String key, Object value) {
+        if (value != null) {
+            configProps.put(key, value);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.testapp.config;
 
+import com.testapp.kafka.serialization.SerializationFormat;
 import lombok.NoArgsConstructor;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
@@ -16,6 +17,8 @@ import org.springframework.kafka.support.serializer.JsonSerializer;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
 import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
 
 @Configuration
@@ -28,6 +31,12 @@ public class KafkaTopicConfig {
     @Value(value = "${spring.kafka.group-id:test-group}")
     private String groupId;
 
+    @Value(value = "${chat.kafka.topic.partitions:5}")
+    private int partitions;
+
+    @Value(value = "${chat.kafka.serialization:JSON}")
+    private SerializationFormat serializationFormat;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -37,7 +46,26 @@ public class KafkaTopicConfig {
 
     @Bean
     public NewTopic createMessageTopic() {
-        return new NewTopic(CHAT_MESSAGE_TOPIC, 5, (short) 1);
+        return new NewTopic(CHAT_MESSAGE_TOPIC, partitions, (short) 1);
+    }
+
+    // Failed records keep their partition number, so the retry and dead-letter topics match the main one
+    @Bean
+    public NewTopic createMessageRetryTopic() {
+        return new NewTopic(CHAT_MESSAGE_RETRY_TOPIC, partitions, (short) 1);
+    }
+
+    @Bean
+    public NewTopic createMessageDeadLetterTopic() {
+        return new NewTopic(CHAT_MESSAGE_DLT_TOPIC, partitions, (short) 1);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public SerializationFormat getSerializationFormat() {
+        return serializationFormat;
     }
 
     private Map<String, Object> buildCommonProperties() {
@@ -0,0 +1,63 @@
+package com.testapp.domain;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.UserDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Read model for message history: only the fields the chat UI renders. The author is exposed
+ * as {@code userId} to keep the same JSON shape as {@link com.testapp.domain.dto.ChatMessageDTO}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChatMessageSummary {
+
+    private String id;
+    private Author userId;
+    private String chatRoomId;
+    private String message;
+    private Instant timeSent;
+    // Stream position of messages delivered through Kafka; null for rows read from the database
+    private Long seq;
+
+    // Used by the JPQL constructor expressions in ChatMessageRepository
+    public ChatMessageSummary(String id, String userId, String username, String firstName, String lastName,
+                              String chatRoomId, String message, Instant timeSent) {
+        this.id = id;
+        this.userId = new Author(userId, username, firstName, lastName);
+        this.chatRoomId = chatRoomId;
+        this.message = message;
+        this.timeSent = timeSent;
+    }
+
+    public static ChatMessageSummary from(ChatMessageDTO messageDTO, long seq) {
+        UserDTO user = messageDTO.getUserId();
+        return ChatMessageSummary.builder()
+                .id(messageDTO.getId())
+                .userId(user != null
+                        ? new Author(user.getId(), user.getUsername(), user.getFirstName(), user.getLastName())
+                        : null)
+                .chatRoomId(messageDTO.getChatRoomDTO() != null ? messageDTO.getChatRoomDTO().getId() : null)
+                .message(messageDTO.getMessage())
+                .timeSent(messageDTO.getTimeSent())
+                .seq(seq)
+                .build();
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Author {
+        private String id;
+        private String username;
+        private String firstName;
+        private String lastName;
+    }
+}
@@ -0,0 +1,43 @@
+package com.testapp.domain;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generates time-ordered UUIDv7 ids (RFC 9562). New rows land at the end of InnoDB's clustered
+ * index instead of at random pages, and ids from this instance sort in creation order: the
+ * 12-bit rand_a field is used as a counter within each millisecond.
+ */
+public final class IdGenerator {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private static long lastMillis;
+    private static int sequence;
+
+    private IdGenerator() {
+    }
+
+    public static String newId() {
+        long millis;
+        int counter;
+        synchronized (IdGenerator.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // Start each millisecond at a random point in the lower half, leaving room to count up
+                sequence = random.nextInt(0x800);
+            } else if (++sequence > 0xFFF) {
+                // Counter exhausted, or the clock went backwards: borrow the next millisecond
+                lastMillis++;
+                sequence = random.nextInt(0x800);
+            }
+            millis = lastMillis;
+            counter = sequence;
+        }
+
+        long mostSignificant = (millis & 0xFFFFFFFFFFFFL) << 16 | 0x7000L | counter;
+        long leastSignificant = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+}
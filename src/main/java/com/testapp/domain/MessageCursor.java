@@ -0,0 +1,40 @@
+package com.testapp.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Keyset position in a room's history, ordered by (time sent, id). Encoded as an opaque
+ * URL-safe token for clients.
+ */
+@Data
+@AllArgsConstructor
+public class MessageCursor {
+
+    private Instant timeSent;
+    private String id;
+
+    public static MessageCursor of(ChatMessageSummary message) {
+        return new MessageCursor(message.getTimeSent(), message.getId());
+    }
+
+    public String encode() {
+        String raw = timeSent.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MessageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new MessageCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))),
+                    raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid message cursor " + cursor, e);
+        }
+    }
+}
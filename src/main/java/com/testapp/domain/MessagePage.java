@@ -0,0 +1,20 @@
+package com.testapp.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessagePage {
+
+    // Oldest first, like the full history endpoint
+    private List<ChatMessageSummary> messages;
+    // Pass as "before" to load older messages; null once the start of the room is reached
+    private String before;
+    // Pass as "after" to load messages newer than this page
+    private String after;
+}
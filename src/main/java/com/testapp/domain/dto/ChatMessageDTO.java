@@ -2,6 +2,7 @@ package com.testapp.domain.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -27,12 +28,12 @@ public class ChatMessageDTO implements Serializable {
     @Id
     @JoinColumn(name = "chat_message_id")
     private String id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserDTO userId;
     @NonNull
     private String message;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chat_room_id")
     private ChatRoomDTO chatRoomDTO;
     private Instant timeSent;
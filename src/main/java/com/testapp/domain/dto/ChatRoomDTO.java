@@ -3,6 +3,7 @@ package com.testapp.domain.dto;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -17,7 +18,7 @@ import java.util.Objects;
 
 @Data
 @Entity
-@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonIgnoreProperties(value = {"hibernateLazyInitializer", "handler"}, ignoreUnknown = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -30,9 +31,11 @@ public class ChatRoomDTO implements Serializable {
     @Column(name = "display_name")
     private String displayName;
     private String description;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "admin_id")
     private UserDTO admin;
+    @Column(name = "participant_count")
+    private int participantCount;
 
     public ChatRoomDTO(String id) {
         this.id = id;
@@ -22,7 +22,7 @@ import java.util.Objects;
 @Data
 @Entity
 @AllArgsConstructor
-@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonIgnoreProperties(value = {"hibernateLazyInitializer", "handler"}, ignoreUnknown = true)
 @NoArgsConstructor
 @Builder
 @Table(name = "user")
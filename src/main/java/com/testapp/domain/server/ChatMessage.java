@@ -1,5 +1,7 @@
 package com.testapp.domain.server;
 
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.dto.ChatMessageDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,10 +16,44 @@ import java.util.Objects;
 @Builder
 public class ChatMessage {
 
+    private String id;
     private String username;
+    // Full author, so clients can render a delivered message without fetching it
+    private ChatMessageSummary.Author author;
     private String message;
     private String chatRoomName;
     private Instant timeSent;
+    // Client-chosen id for a message sent over the socket, echoed back in its ack
+    private String correlationId;
+    // Per-room sequence (the record's offset in the room's partition); clients resume from the last one seen
+    private Long seq;
+
+    public static ChatMessage from(ChatMessageDTO messageDTO, long seq) {
+        return ChatMessage.builder()
+                .id(messageDTO.getId())
+                .seq(seq)
+                .chatRoomName(messageDTO.getChatRoomDTO() != null ? messageDTO.getChatRoomDTO().getId() : null)
+                .message(messageDTO.getMessage())
+                .username(messageDTO.getUserId() != null ? messageDTO.getUserId().getUsername() : null)
+                .author(messageDTO.getUserId() != null
+                        ? new ChatMessageSummary.Author(messageDTO.getUserId().getId(), messageDTO.getUserId().getUsername(),
+                                messageDTO.getUserId().getFirstName(), messageDTO.getUserId().getLastName())
+                        : null)
+                .timeSent(messageDTO.getTimeSent())
+                .build();
+    }
+
+    public static ChatMessage from(ChatMessageSummary summary) {
+        return ChatMessage.builder()
+                .id(summary.getId())
+                .seq(summary.getSeq())
+                .chatRoomName(summary.getChatRoomId())
+                .message(summary.getMessage())
+                .username(summary.getUserId() != null ? summary.getUserId().getUsername() : null)
+                .author(summary.getUserId())
+                .timeSent(summary.getTimeSent())
+                .build();
+    }
 
     @Override
     public boolean equals(Object o) {
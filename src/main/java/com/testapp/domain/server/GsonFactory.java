@@ -0,0 +1,43 @@
+package com.testapp.domain.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Gson for WebSocket frames. Instants are written as ISO-8601 strings, matching the REST
+ * responses; Gson can't reflect into java.time classes on recent JDKs.
+ */
+final class GsonFactory {
+
+    private GsonFactory() {
+    }
+
+    static Gson create() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Instant.class, new InstantAdapter().nullSafe())
+                .create();
+    }
+
+    private static final class InstantAdapter extends TypeAdapter<Instant> {
+
+        @Override
+        public void write(JsonWriter out, Instant value) throws IOException {
+            out.value(value.toString());
+        }
+
+        @Override
+        public Instant read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NUMBER) {
+                return Instant.ofEpochMilli(in.nextLong());
+            }
+            return Instant.parse(in.nextString());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.testapp.domain.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Frame sent back to the sender of a socket message once the broker has accepted it, or
+ * failed to.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageAck {
+
+    private final String type = "ack";
+    private String correlationId;
+    private String id;
+    private Instant timeSent;
+    private boolean accepted;
+}
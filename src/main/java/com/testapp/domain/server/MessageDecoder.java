@@ -6,7 +6,7 @@ import jakarta.websocket.Decoder;
 
 public class MessageDecoder implements Decoder.Text<ChatMessage> {
 
-    private static Gson gson = new Gson();
+    private static Gson gson = GsonFactory.create();
 
     @Override
     public ChatMessage decode(String s) throws DecodeException {
@@ -5,15 +5,29 @@ import jakarta.websocket.EncodeException;
 import jakarta.websocket.Encoder;
 import jakarta.websocket.EndpointConfig;
 
+import java.util.List;
+
 public class MessageEncoder implements Encoder.Text<ChatMessage> {
 
-    private static Gson gson = new Gson();
+    private static Gson gson = GsonFactory.create();
 
     @Override
     public String encode(ChatMessage message) throws EncodeException {
         return gson.toJson(message);
     }
 
+    public String encodeAll(List<ChatMessage> messages) throws EncodeException {
+        return gson.toJson(messages);
+    }
+
+    public String encodeAck(MessageAck ack) {
+        return gson.toJson(ack);
+    }
+
+    public String encodeFrame(StreamFrame frame) {
+        return gson.toJson(frame);
+    }
+
     @Override
     public void init(EndpointConfig endpointConfig) {
         // Custom initialization logic
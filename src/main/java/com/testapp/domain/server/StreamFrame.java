@@ -0,0 +1,37 @@
+package com.testapp.domain.server;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Control frame on the multiplexed stream endpoint. Clients send {@code subscribe},
+ * {@code unsubscribe} and {@code send}; the server answers with {@code subscribed},
+ * {@code unsubscribed}, {@code replayed}, {@code resync} or {@code error}. Chat messages themselves are delivered as
+ * {@link ChatMessage} frames tagged with their room.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StreamFrame {
+
+    public static final String SUBSCRIBE = "subscribe";
+    public static final String UNSUBSCRIBE = "unsubscribe";
+    public static final String SEND = "send";
+    public static final String SUBSCRIBED = "subscribed";
+    public static final String UNSUBSCRIBED = "unsubscribed";
+    public static final String ERROR = "error";
+    public static final String RESYNC = "resync";
+    public static final String REPLAYED = "replayed";
+
+    private String type;
+    private String chatRoomId;
+    private String message;
+    private String correlationId;
+    private String reason;
+    // On subscribe: the last sequence the client saw in this room, to replay what it missed.
+    // On replayed: the last sequence the replay covered
+    private Long since;
+}
@@ -0,0 +1,30 @@
+package com.testapp.domain.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import jakarta.websocket.DecodeException;
+import jakarta.websocket.Decoder;
+
+public class StreamFrameDecoder implements Decoder.Text<StreamFrame> {
+
+    private static Gson gson = GsonFactory.create();
+
+    @Override
+    public StreamFrame decode(String s) throws DecodeException {
+        try {
+            return gson.fromJson(s, StreamFrame.class);
+        } catch (JsonParseException e) {
+            throw new DecodeException(s, "Malformed stream frame", e);
+        }
+    }
+
+    @Override
+    public boolean willDecode(String s) {
+        return (s != null);
+    }
+
+    @Override
+    public void destroy() {
+        // Close resources
+    }
+}
@@ -0,0 +1,43 @@
+package com.testapp.kafka;
+
+import com.testapp.domain.ChatMessageKey;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Routes chat messages by chat room id only, so all of a room's traffic lands on one
+ * partition and is consumed in order, regardless of the user and message ids in the key.
+ */
+public class ChatRoomPartitioner implements Partitioner {
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (key instanceof ChatMessageKey messageKey && messageKey.getOrgId() != null) {
+            return partitionFor(messageKey.getOrgId(), numPartitions);
+        }
+        if (keyBytes != null) {
+            return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+        }
+        return ThreadLocalRandom.current().nextInt(numPartitions);
+    }
+
+    public static int partitionFor(String chatRoomId, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(chatRoomId.getBytes(StandardCharsets.UTF_8))) % numPartitions;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        // No configuration
+    }
+
+    @Override
+    public void close() {
+        // No resources
+    }
+}
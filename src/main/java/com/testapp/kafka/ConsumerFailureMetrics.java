@@ -0,0 +1,48 @@
+package com.testapp.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts records the chat consumers gave up on, by failure type and by what was done with them.
+ */
+@Component
+public class ConsumerFailureMetrics {
+
+    public static final String SKIPPED = "skipped";
+    public static final String RETRIED = "retried";
+    public static final String DEAD_LETTERED = "dead-lettered";
+
+    private final MeterRegistry meterRegistry;
+
+    public ConsumerFailureMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void failed(Exception exception, String outcome) {
+        count(isDeserializationFailure(exception) ? "deserialization" : "processing", outcome);
+    }
+
+    public void deserializationFailed(String outcome) {
+        count("deserialization", outcome);
+    }
+
+    public static boolean isDeserializationFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String describe(ConsumerRecord<?, ?> record) {
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
+    private void count(String type, String outcome) {
+        meterRegistry.counter("chat.kafka.consumer.failures", "type", type, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,17 @@
+package com.testapp.kafka;
+
+/**
+ * How chat messages are spread across application instances for WebSocket delivery.
+ */
+public enum DeliveryMode {
+    /**
+     * All instances share one consumer group, so each message reaches a single instance. Only
+     * correct when one instance serves every socket.
+     */
+    SHARED,
+    /**
+     * Each instance consumes the whole topic in its own consumer group, so every instance
+     * delivers every message to the sockets it holds.
+     */
+    BROADCAST
+}
@@ -0,0 +1,64 @@
+package com.testapp.kafka;
+
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.service.RecentMessageCache;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+
+/**
+ * Batch alternative to {@link KConsumer}: receives a whole poll of records and delivers
+ * each room's messages to its sessions as a single frame.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.kafka.consumer.batch.enabled", havingValue = "true")
+public class KBatchConsumer {
+
+    private final RecentMessageCache recentMessageCache;
+    private final MessageBroadcaster messageBroadcaster;
+
+    private static final Logger log = LoggerFactory.getLogger(KBatchConsumer.class);
+
+    @KafkaListener(topics = CHAT_MESSAGE_TOPIC, containerFactory = "chatMessageContainerFactory")
+    public void chatMessageBatchListener(@Payload List<ChatMessageDTO> messageDTOs,
+                                         @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        log.info("received {} messages", messageDTOs.size());
+
+        // Group by room, keeping poll order within each room
+        Map<String, List<ChatMessage>> messagesByRoom = new LinkedHashMap<>();
+        for (int i = 0; i < messageDTOs.size(); i++) {
+            ChatMessageDTO messageDTO = messageDTOs.get(i);
+            long offset = offsets.get(i);
+            if (messageDTO.getChatRoomDTO() != null && messageDTO.getChatRoomDTO().getId() != null) {
+                recentMessageCache.append(ChatMessageSummary.from(messageDTO, offset));
+                messagesByRoom.computeIfAbsent(messageDTO.getChatRoomDTO().getId(), room -> new ArrayList<>())
+                        .add(ChatMessage.from(messageDTO, offset));
+            }
+        }
+
+        messagesByRoom.forEach((chatRoom, messages) -> {
+            try {
+                messageBroadcaster.broadcast(chatRoom, messages);
+            } catch (Exception e) {
+                log.error("Failed to broadcast {} messages to chat room {} via WebSocket", messages.size(), chatRoom, e);
+            }
+        });
+    }
+}
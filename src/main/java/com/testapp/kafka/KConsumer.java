@@ -1,39 +1,41 @@
 package com.testapp.kafka;
 
+import com.testapp.domain.ChatMessageSummary;
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.server.ChatMessage;
-import com.testapp.rest.ServerController;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.service.RecentMessageCache;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-
 import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
 
 @Component
 @RequiredArgsConstructor
+@ConditionalOnExpression("!${chat.kafka.consumer.batch.enabled:false} and !${chat.kafka.consumer.keyed.enabled:false}")
 public class KConsumer {
 
+    private final RecentMessageCache recentMessageCache;
+    private final MessageBroadcaster messageBroadcaster;
+
     private static final Logger log = LoggerFactory.getLogger(KConsumer.class);
 
     @KafkaListener(topics = CHAT_MESSAGE_TOPIC, containerFactory = "chatMessageContainerFactory")
-    public void chatMessageListener(ChatMessageDTO messageDTO) {
+    public void chatMessageListener(@Payload ChatMessageDTO messageDTO, @Header(KafkaHeaders.OFFSET) long offset) {
         log.info("received message {}", messageDTO);
         
         // Convert ChatMessageDTO to ChatMessage and broadcast via WebSocket
         if (messageDTO.getChatRoomDTO() != null && messageDTO.getChatRoomDTO().getId() != null) {
+            recentMessageCache.append(ChatMessageSummary.from(messageDTO, offset));
             try {
-                ChatMessage wsMessage = ChatMessage.builder()
-                        .chatRoomName(messageDTO.getChatRoomDTO().getId())
-                        .message(messageDTO.getMessage())
-                        .username(messageDTO.getUserId() != null ? messageDTO.getUserId().getUsername() : null)
-                        .timeSent(messageDTO.getTimeSent())
-                        .build();
-                
-                ServerController.broadcastMessage(wsMessage);
+                messageBroadcaster.broadcast(ChatMessage.from(messageDTO, offset));
             } catch (Exception e) {
                 log.error("Failed to broadcast message via WebSocket", e);
             }
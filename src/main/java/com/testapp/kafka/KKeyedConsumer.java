@@ -0,0 +1,227 @@
+package com.testapp.kafka;
+
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.service.RecentMessageCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+
+/**
+ * Keyed alternative to {@link KConsumer}: hands each record to one of a pool of single-threaded
+ * workers chosen by chat room, so a busy room only delays the rooms that share its worker rather
+ * than every room on its partition. A room always maps to the same worker, which keeps its
+ * messages in order. Records finish out of order across workers, so each partition's commit only
+ * advances past a record once every earlier record on it has finished.
+ */
+@Component
+@ConditionalOnExpression("!${chat.kafka.consumer.batch.enabled:false} and ${chat.kafka.consumer.keyed.enabled:false}")
+public class KKeyedConsumer implements ConsumerSeekAware {
+
+    private static final Logger log = LoggerFactory.getLogger(KKeyedConsumer.class);
+
+    // How often a listener waiting on a full worker queue checks whether the worker has shut down
+    private static final long SHUTDOWN_CHECK_MS = 100;
+
+    private final RecentMessageCache recentMessageCache;
+    private final MessageBroadcaster messageBroadcaster;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.kafka.consumer.keyed.workers:8}")
+    private int workerCount;
+
+    // Past this many queued records per worker the listener thread waits, which slows polling
+    @Value("${chat.kafka.consumer.keyed.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor[] workers;
+    private final Map<TopicPartition, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public KKeyedConsumer(RecentMessageCache recentMessageCache, MessageBroadcaster messageBroadcaster,
+                          MeterRegistry meterRegistry) {
+        this.recentMessageCache = recentMessageCache;
+        this.messageBroadcaster = messageBroadcaster;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        // Rooms are assigned to workers by hash modulo the worker count
+        if (workerCount < 1) {
+            throw new IllegalStateException("chat.kafka.consumer.keyed.workers must be at least 1, was " + workerCount);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalStateException("chat.kafka.consumer.keyed.queue-capacity must be at least 1, was "
+                    + queueCapacity);
+        }
+        workers = new ThreadPoolExecutor[workerCount];
+        AtomicInteger threadIndex = new AtomicInteger();
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, "chat-keyed-worker-" + threadIndex.getAndIncrement()),
+                    KKeyedConsumer::awaitCapacity);
+        }
+        Gauge.builder("chat.kafka.consumer.keyed.queued", this, KKeyedConsumer::getQueuedRecords)
+                .description("Records waiting for a keyed worker")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        for (ThreadPoolExecutor worker : workers) {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @KafkaListener(topics = CHAT_MESSAGE_TOPIC, containerFactory = "chatMessageContainerFactory")
+    public void chatMessageListener(@Payload ChatMessageDTO messageDTO,
+                                    @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                    @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                    @Header(KafkaHeaders.OFFSET) long offset,
+                                    Acknowledgment acknowledgment) {
+        InFlight records = inFlight.computeIfAbsent(new TopicPartition(topic, partition), key -> new InFlight());
+        records.started(offset, acknowledgment);
+        if (messageDTO.getChatRoomDTO() == null || messageDTO.getChatRoomDTO().getId() == null) {
+            records.finished(offset);
+            return;
+        }
+        String chatRoom = messageDTO.getChatRoomDTO().getId();
+        workers[Math.floorMod(chatRoom.hashCode(), workers.length)].execute(() -> {
+            try {
+                deliver(messageDTO, offset);
+            } finally {
+                // A failed broadcast is logged and not retried, matching the serial listener
+                records.finished(offset);
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Consumption restarts from the committed offset, so nothing from an earlier assignment counts
+        assignments.keySet().forEach(this::forget);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(this::forget);
+    }
+
+    private void forget(TopicPartition partition) {
+        InFlight records = inFlight.remove(partition);
+        if (records != null) {
+            records.revoke();
+        }
+    }
+
+    private void deliver(ChatMessageDTO messageDTO, long offset) {
+        log.info("received message {}", messageDTO);
+        recentMessageCache.append(ChatMessageSummary.from(messageDTO, offset));
+        try {
+            messageBroadcaster.broadcast(ChatMessage.from(messageDTO, offset));
+        } catch (Exception e) {
+            log.error("Failed to broadcast message via WebSocket", e);
+        }
+    }
+
+    /**
+     * Rejection handler for a full worker queue: waits for room instead of running the record on
+     * the caller, which would break per-room order. Gives up once the worker shuts down, since a
+     * record queued after that may never run.
+     */
+    private static void awaitCapacity(Runnable task, ThreadPoolExecutor executor) {
+        try {
+            while (!executor.isShutdown()) {
+                if (executor.getQueue().offer(task, SHUTDOWN_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                    // Shut down while queuing: take the record back unless the worker already has it
+                    if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                        break;
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        throw new RejectedExecutionException("Keyed worker is shut down");
+    }
+
+    /**
+     * A partition's records handed to workers and not yet committed, lowest offset first.
+     */
+    private static final class InFlight {
+
+        private final TreeMap<Long, Acknowledgment> pending = new TreeMap<>();
+        private final Set<Long> finished = new HashSet<>();
+        private boolean revoked;
+
+        synchronized void started(long offset, Acknowledgment acknowledgment) {
+            pending.put(offset, acknowledgment);
+        }
+
+        /**
+         * Acknowledges the highest record below which every record has finished. Acknowledging
+         * under the lock keeps the commits for a partition in offset order.
+         */
+        synchronized void finished(long offset) {
+            if (!pending.containsKey(offset)) {
+                return;
+            }
+            finished.add(offset);
+            Acknowledgment highest = null;
+            while (!pending.isEmpty() && finished.remove(pending.firstKey())) {
+                highest = pending.pollFirstEntry().getValue();
+            }
+            if (highest != null && !revoked) {
+                highest.acknowledge();
+            }
+        }
+
+        // The partition's new owner starts from the last commit; this instance must not move it
+        synchronized void revoke() {
+            revoked = true;
+        }
+    }
+
+    private int getQueuedRecords() {
+        int queued = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            queued += worker.getQueue().size();
+        }
+        return queued;
+    }
+}
@@ -2,6 +2,7 @@ package com.testapp.kafka;
 
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.ChatMessageKey;
+import com.testapp.kafka.serialization.RoomFilteringDeserializer;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
@@ -10,6 +11,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
 import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
@@ -22,13 +24,16 @@ public class KProducer {
 
     private final KafkaTemplate<ChatMessageKey, ChatMessageDTO> kafkaChatMessageTemplate;
 
-    public void sendMessage(String chatRoomId, ChatMessageDTO message) {
+    public CompletableFuture<SendResult<ChatMessageKey, ChatMessageDTO>> sendMessage(String chatRoomId, ChatMessageDTO message) {
         ChatMessageKey key = new ChatMessageKey(chatRoomId, message.getUserId().getId(), message.getId());
         ProducerRecord<ChatMessageKey, ChatMessageDTO> record = new ProducerRecord<>(
                 CHAT_MESSAGE_TOPIC,
                 key,
                 message
         );
+        // Lets consumers skip rooms they don't serve without decoding the value
+        record.headers().add(RoomFilteringDeserializer.CHAT_ROOM_HEADER, chatRoomId.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RoomFilteringDeserializer.MESSAGE_ID_HEADER, message.getId().getBytes(StandardCharsets.UTF_8));
 
         CompletableFuture<SendResult<ChatMessageKey, ChatMessageDTO>> future = kafkaChatMessageTemplate
                 .send(record);
@@ -39,5 +44,6 @@ public class KProducer {
                 log.error("Failed to send message {}", message);
             }
         });
+        return future;
     }
 }
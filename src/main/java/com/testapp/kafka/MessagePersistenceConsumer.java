@@ -0,0 +1,87 @@
+package com.testapp.kafka;
+
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.repository.ChatMessageBatchRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+
+/**
+ * Writes chat messages to the database from the topic, off the request path. Offsets are
+ * committed after each batch is written, so a failure replays the batch and the idempotent
+ * insert skips rows that already made it. Records that keep failing move to the retry topic,
+ * and records that can't be decoded at all go to the dead-letter topic.
+ */
+@Component
+public class MessagePersistenceConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePersistenceConsumer.class);
+    private static final LogAccessor logAccessor = new LogAccessor(MessagePersistenceConsumer.class);
+
+    private final ChatMessageBatchRepository batchRepository;
+    private final DistributionSummary batchSize;
+    private final Timer batchWrite;
+
+    public MessagePersistenceConsumer(ChatMessageBatchRepository batchRepository, MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.batchSize = DistributionSummary.builder("chat.persistence.batch.size")
+                .description("Messages written per database batch")
+                .register(meterRegistry);
+        this.batchWrite = Timer.builder("chat.persistence.batch.write")
+                .description("Time to write a batch of messages to the database")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = CHAT_MESSAGE_TOPIC, containerFactory = "chatMessagePersistenceContainerFactory")
+    public void persistMessages(List<ConsumerRecord<ChatMessageKey, ChatMessageDTO>> records) {
+        List<ChatMessageDTO> messages = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<ChatMessageKey, ChatMessageDTO> record = records.get(i);
+            if (record.value() == null) {
+                DeserializationException failure = SerializationUtils.getExceptionFromHeader(record,
+                        SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, logAccessor);
+                if (failure != null) {
+                    // Write what came before it; the error handler dead-letters this record and redelivers the rest
+                    write(messages);
+                    throw new BatchListenerFailedException("Chat message could not be deserialized", failure, i);
+                }
+            } else if (record.value().getId() != null) {
+                messages.add(record.value());
+            }
+        }
+        write(messages);
+    }
+
+    @KafkaListener(topics = CHAT_MESSAGE_RETRY_TOPIC, containerFactory = "chatMessageRetryContainerFactory")
+    public void retryMessage(ChatMessageDTO messageDTO) {
+        if (messageDTO.getId() != null) {
+            write(List.of(messageDTO));
+        }
+    }
+
+    private void write(List<ChatMessageDTO> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        batchWrite.record(() -> batchRepository.saveAll(messages));
+        batchSize.record(messages.size());
+        log.debug("persisted {} messages", messages.size());
+    }
+}
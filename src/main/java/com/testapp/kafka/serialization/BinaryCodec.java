@@ -0,0 +1,48 @@
+package com.testapp.kafka.serialization;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field helpers shared by the binary chat record serializers. Strings are written as a
+ * length prefix followed by UTF-8 bytes, with a length of -1 for null.
+ */
+final class BinaryCodec {
+
+    static final byte VERSION_1 = 1;
+    // Adds the author's first and last name after the username
+    static final byte VERSION_2 = 2;
+
+    // JSON records always start with '{', which can never be a version byte
+    static final byte JSON_OBJECT_START = '{';
+
+    private BinaryCodec() {
+    }
+
+    static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    static int sizeOf(byte[] value) {
+        return Integer.BYTES + (value != null ? value.length : 0);
+    }
+
+    static void put(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.testapp.kafka.serialization;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import static com.testapp.kafka.serialization.BinaryCodec.JSON_OBJECT_START;
+import static com.testapp.kafka.serialization.BinaryCodec.VERSION_1;
+import static com.testapp.kafka.serialization.BinaryCodec.VERSION_2;
+import static com.testapp.kafka.serialization.BinaryCodec.getString;
+
+/**
+ * Reads messages written by {@link ChatMessageSerializer}, and falls back to JSON for records
+ * produced before the binary format was enabled. The user is populated with its id, username
+ * and (from version 2) name; the chat room with its id only.
+ */
+public class ChatMessageDeserializer implements Deserializer<ChatMessageDTO> {
+
+    private final JsonDeserializer<ChatMessageDTO> jsonDeserializer = new JsonDeserializer<>(ChatMessageDTO.class);
+
+    @Override
+    public ChatMessageDTO deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] == JSON_OBJECT_START) {
+            return jsonDeserializer.deserialize(topic, data);
+        }
+        byte version = data[0];
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new SerializationException("Unsupported chat message version " + version);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+        String id = getString(buffer);
+        String userId = getString(buffer);
+        String username = getString(buffer);
+        String firstName = version >= VERSION_2 ? getString(buffer) : null;
+        String lastName = version >= VERSION_2 ? getString(buffer) : null;
+        String chatRoomId = getString(buffer);
+        String text = getString(buffer);
+        Instant timeSent = buffer.get() == 1 ? Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()) : null;
+
+        ChatMessageDTO message = new ChatMessageDTO();
+        message.setId(id);
+        message.setUserId(userId != null || username != null
+                ? UserDTO.builder().id(userId).username(username).firstName(firstName).lastName(lastName).build()
+                : null);
+        message.setChatRoomDTO(chatRoomId != null ? new ChatRoomDTO(chatRoomId) : null);
+        if (text != null) {
+            message.setMessage(text);
+        }
+        message.setTimeSent(timeSent);
+        return message;
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.testapp.kafka.serialization;
+
+import com.testapp.domain.ChatMessageKey;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+
+import static com.testapp.kafka.serialization.BinaryCodec.JSON_OBJECT_START;
+import static com.testapp.kafka.serialization.BinaryCodec.VERSION_1;
+import static com.testapp.kafka.serialization.BinaryCodec.getString;
+
+/**
+ * Reads keys written by {@link ChatMessageKeySerializer}, and falls back to JSON for keys
+ * produced before the binary format was enabled.
+ */
+public class ChatMessageKeyDeserializer implements Deserializer<ChatMessageKey> {
+
+    private final JsonDeserializer<ChatMessageKey> jsonDeserializer = new JsonDeserializer<>(ChatMessageKey.class);
+
+    @Override
+    public ChatMessageKey deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] == JSON_OBJECT_START) {
+            return jsonDeserializer.deserialize(topic, data);
+        }
+        if (data[0] != VERSION_1) {
+            throw new SerializationException("Unsupported chat message key version " + data[0]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+        return new ChatMessageKey(getString(buffer), getString(buffer), getString(buffer));
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
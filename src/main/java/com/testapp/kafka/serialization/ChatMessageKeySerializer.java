@@ -0,0 +1,34 @@
+package com.testapp.kafka.serialization;
+
+import com.testapp.domain.ChatMessageKey;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+import static com.testapp.kafka.serialization.BinaryCodec.VERSION_1;
+import static com.testapp.kafka.serialization.BinaryCodec.put;
+import static com.testapp.kafka.serialization.BinaryCodec.sizeOf;
+import static com.testapp.kafka.serialization.BinaryCodec.utf8;
+
+/**
+ * Binary form of {@link ChatMessageKey}: version byte, chat room id, user id, message id.
+ */
+public class ChatMessageKeySerializer implements Serializer<ChatMessageKey> {
+
+    @Override
+    public byte[] serialize(String topic, ChatMessageKey key) {
+        if (key == null) {
+            return null;
+        }
+        byte[] chatRoomId = utf8(key.getOrgId());
+        byte[] userId = utf8(key.getUserId());
+        byte[] messageId = utf8(key.getMessageId());
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + sizeOf(chatRoomId) + sizeOf(userId) + sizeOf(messageId));
+        buffer.put(VERSION_1);
+        put(buffer, chatRoomId);
+        put(buffer, userId);
+        put(buffer, messageId);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,57 @@
+package com.testapp.kafka.serialization;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import static com.testapp.kafka.serialization.BinaryCodec.VERSION_2;
+import static com.testapp.kafka.serialization.BinaryCodec.put;
+import static com.testapp.kafka.serialization.BinaryCodec.sizeOf;
+import static com.testapp.kafka.serialization.BinaryCodec.utf8;
+
+/**
+ * Binary form of {@link ChatMessageDTO} carrying only what consumers need: version byte,
+ * message id, user id, username, first and last name, chat room id, message text and time
+ * sent. The rest of the nested user and chat room details that the JSON form repeats on every
+ * record are left out.
+ */
+public class ChatMessageSerializer implements Serializer<ChatMessageDTO> {
+
+    @Override
+    public byte[] serialize(String topic, ChatMessageDTO message) {
+        if (message == null) {
+            return null;
+        }
+        byte[] id = utf8(message.getId());
+        byte[] userId = utf8(message.getUserId() != null ? message.getUserId().getId() : null);
+        byte[] username = utf8(message.getUserId() != null ? message.getUserId().getUsername() : null);
+        byte[] firstName = utf8(message.getUserId() != null ? message.getUserId().getFirstName() : null);
+        byte[] lastName = utf8(message.getUserId() != null ? message.getUserId().getLastName() : null);
+        byte[] chatRoomId = utf8(message.getChatRoomDTO() != null ? message.getChatRoomDTO().getId() : null);
+        byte[] text = utf8(message.getMessage());
+        Instant timeSent = message.getTimeSent();
+
+        int size = 1 + sizeOf(id) + sizeOf(userId) + sizeOf(username) + sizeOf(firstName) + sizeOf(lastName)
+                + sizeOf(chatRoomId) + sizeOf(text)
+                + 1 + (timeSent != null ? Long.BYTES + Integer.BYTES : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION_2);
+        put(buffer, id);
+        put(buffer, userId);
+        put(buffer, username);
+        put(buffer, firstName);
+        put(buffer, lastName);
+        put(buffer, chatRoomId);
+        put(buffer, text);
+        if (timeSent != null) {
+            buffer.put((byte) 1);
+            buffer.putLong(timeSent.getEpochSecond());
+            buffer.putInt(timeSent.getNano());
+        } else {
+            buffer.put((byte) 0);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,92 @@
+package com.testapp.kafka.serialization;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Value deserializer that checks the record's chat room header first and returns null, without
+ * decoding the value, for rooms this instance has no interest in. Records without the header
+ * are always decoded. Pair with a record filter that discards null values. Skipped records are
+ * reported with their room and message id, so interest that starts later can account for them.
+ */
+public class RoomFilteringDeserializer<T> implements Deserializer<T> {
+
+    public static final String CHAT_ROOM_HEADER = "chat-room-id";
+    public static final String MESSAGE_ID_HEADER = "chat-message-id";
+
+    private final Deserializer<T> delegate;
+    private final Predicate<String> interested;
+    private final BiConsumer<String, String> onSkipped;
+    private final Counter skipped;
+    private final Counter delivered;
+
+    /**
+     * @param onSkipped receives the room and message id (null when the record has none) of each skipped record
+     */
+    public RoomFilteringDeserializer(Deserializer<T> delegate, Predicate<String> interested,
+                                     BiConsumer<String, String> onSkipped, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.interested = interested;
+        this.onSkipped = onSkipped;
+        this.skipped = meterRegistry.counter("chat.kafka.delivery.records", "result", "skipped");
+        this.delivered = meterRegistry.counter("chat.kafka.delivery.records", "result", "delivered");
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (!isWanted(headers)) {
+            return null;
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        // Checked before the default implementation copies the buffer into an array
+        if (!isWanted(headers)) {
+            return null;
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private boolean isWanted(Headers headers) {
+        Header header = headers != null ? headers.lastHeader(CHAT_ROOM_HEADER) : null;
+        if (header == null) {
+            delivered.increment();
+            return true;
+        }
+        String room = new String(header.value(), StandardCharsets.UTF_8);
+        if (!interested.test(room)) {
+            Header messageId = headers.lastHeader(MESSAGE_ID_HEADER);
+            onSkipped.accept(room, messageId != null ? new String(messageId.value(), StandardCharsets.UTF_8) : null);
+            skipped.increment();
+            return false;
+        }
+        delivered.increment();
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package com.testapp.kafka.serialization;
+
+/**
+ * Wire format for chat-messages records, selected with {@code chat.kafka.serialization}.
+ */
+public enum SerializationFormat {
+    /** Spring's JSON serializers, embedding the full user and chat room objects. */
+    JSON,
+    /** Versioned binary records with ids, username, text and timestamp only. */
+    BINARY
+}
@@ -0,0 +1,35 @@
+package com.testapp.repository;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JDBC batch writer for chat messages. With {@code rewriteBatchedStatements} on the connection
+ * URL the driver sends each batch as multi-row inserts. Rows that already exist are left
+ * untouched, so replaying the same records is harmless.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatMessageBatchRepository {
+
+    private static final String INSERT_MESSAGE =
+            "insert into chat_message (id, message, user_id, chat_room_id, time_sent) values (?, ?, ?, ?, ?) " +
+            "on duplicate key update id = id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void saveAll(List<ChatMessageDTO> messages) {
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, message.getId());
+            ps.setString(2, message.getMessage());
+            ps.setString(3, message.getUserId() != null ? message.getUserId().getId() : null);
+            ps.setString(4, message.getChatRoomDTO() != null ? message.getChatRoomDTO().getId() : null);
+            ps.setTimestamp(5, message.getTimeSent() != null ? Timestamp.from(message.getTimeSent()) : null);
+        });
+    }
+}
@@ -1,16 +1,49 @@
 package com.testapp.repository;
 
+import com.testapp.domain.ChatMessageSummary;
 import com.testapp.domain.dto.ChatMessageDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessageDTO, String>  {
 
-    @Query(value = "select * from chat_message where chat_room_id = :chatRoomId order by time_sent asc", nativeQuery = true)
-    List<ChatMessageDTO> findByChatRoomId(@Param("chatRoomId") String chatRoomId);
+    String SELECT_SUMMARY = "select new com.testapp.domain.ChatMessageSummary(" +
+            "m.id, u.id, u.username, u.firstName, u.lastName, m.chatRoomDTO.id, m.message, m.timeSent) " +
+            "from ChatMessageDTO m left join m.userId u ";
+
+    @Query(SELECT_SUMMARY + "where m.chatRoomDTO.id = :chatRoomId order by m.timeSent asc, m.id asc")
+    List<ChatMessageSummary> findAllByChatRoomId(@Param("chatRoomId") String chatRoomId);
+
+    // Keyset pages walk idx_chat_message_chat_room_timestamp; InnoDB appends the primary key to
+    // secondary indexes, so (chat_room_id, time_sent, id) is covered without a filesort
+
+    @Query(SELECT_SUMMARY +
+            "where m.chatRoomDTO.id = :chatRoomId " +
+            "order by m.timeSent desc, m.id desc")
+    List<ChatMessageSummary> findLatestByChatRoomId(@Param("chatRoomId") String chatRoomId, Pageable pageable);
+
+    @Query(SELECT_SUMMARY +
+            "where m.chatRoomDTO.id = :chatRoomId " +
+            "and (m.timeSent < :timeSent or (m.timeSent = :timeSent and m.id < :id)) " +
+            "order by m.timeSent desc, m.id desc")
+    List<ChatMessageSummary> findBeforeByChatRoomId(@Param("chatRoomId") String chatRoomId,
+                                                    @Param("timeSent") Instant timeSent,
+                                                    @Param("id") String id,
+                                                    Pageable pageable);
+
+    @Query(SELECT_SUMMARY +
+            "where m.chatRoomDTO.id = :chatRoomId " +
+            "and (m.timeSent > :timeSent or (m.timeSent = :timeSent and m.id > :id)) " +
+            "order by m.timeSent asc, m.id asc")
+    List<ChatMessageSummary> findAfterByChatRoomId(@Param("chatRoomId") String chatRoomId,
+                                                   @Param("timeSent") Instant timeSent,
+                                                   @Param("id") String id,
+                                                   Pageable pageable);
 }
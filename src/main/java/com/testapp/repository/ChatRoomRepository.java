@@ -1,12 +1,30 @@
 package com.testapp.repository;
 
 
+import com.testapp.domain.ChatRoomDetails;
 import com.testapp.domain.dto.ChatRoomDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ChatRoomRepository extends JpaRepository<ChatRoomDTO, String> {
 
     Optional<ChatRoomDTO> findByDisplayName(String displayName);
+
+    @Query("select r from ChatRoomDTO r left join fetch r.admin where r.id = :id")
+    Optional<ChatRoomDTO> findWithAdminById(@Param("id") String id);
+
+    // Rooms, admins and participant counts for a user in a single round trip
+    @Query("select new com.testapp.domain.ChatRoomDetails(r.id, r.displayName, r.description, a, r.participantCount) " +
+            "from RoomManagement rm join rm.chatRoom r left join r.admin a " +
+            "where rm.id.userId = :userId")
+    List<ChatRoomDetails> findDetailsByUserId(@Param("userId") String userId);
+
+    @Modifying
+    @Query("update ChatRoomDTO r set r.participantCount = r.participantCount + 1 where r.id = :chatRoomId")
+    int incrementParticipantCount(@Param("chatRoomId") String chatRoomId);
 }
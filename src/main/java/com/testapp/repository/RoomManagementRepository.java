@@ -14,10 +14,10 @@ public interface RoomManagementRepository extends JpaRepository<RoomManagement,
     @Query(value = "select count(*) from room_management where chat_room_id = :chatRoomId", nativeQuery = true)
     int findParticipantCountByChatRoomId(@Param("chatRoomId") String chatRoomId);
 
+    @Query("select rm from RoomManagement rm join fetch rm.user where rm.id.chatRoomId = :chatRoomId")
     List<RoomManagement> findByChatRoomId(@Param("chatRoomId") String chatRoomId);
 
     Optional<RoomManagement> findByUserIdAndChatRoomId(String userId, String chatRoomId);
 
-    @Query(value = "select * from room_management where user_id = :userId", nativeQuery = true)
-    List<RoomManagement> findByUserId(@Param("userId") String userId);
+    boolean existsByUserIdAndChatRoomId(String userId, String chatRoomId);
 }
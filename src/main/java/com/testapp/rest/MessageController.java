@@ -3,9 +3,11 @@ package com.testapp.rest;
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.dto.UserDTO;
 import com.testapp.service.MessageService;
+import org.apache.kafka.common.KafkaException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,8 +16,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
 @RestController
 @RequestMapping(path = "/message")
 public class MessageController {
@@ -34,7 +40,18 @@ public class MessageController {
         chatMessageDTO.setUserId(currentUser);
         log.info("Sending message {} to chat room {}", chatMessageDTO, chatRoom);
 
-        return ResponseEntity.ok().body(messageService.sendMessage(chatRoom, chatMessageDTO));
+        try {
+            return ResponseEntity.ok().body(messageService.sendMessage(chatRoom, chatMessageDTO));
+        } catch (TimeoutException e) {
+            log.warn("Timed out publishing message to chat room {}", chatRoom);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Message broker did not respond in time");
+        } catch (ExecutionException | KafkaException e) {
+            log.error("Failed to publish message to chat room {}", chatRoom, e);
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Failed to publish message");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted while publishing message");
+        }
     }
 
     @GetMapping("/chatRoom/{chatRoom}")
@@ -46,4 +63,19 @@ public class MessageController {
             return ResponseEntity.internalServerError().body("Failed to get messages: " + e.getMessage());
         }
     }
+
+    @GetMapping("/chatRoom/{chatRoom}/history")
+    public ResponseEntity<?> getMessageHistory(@PathVariable String chatRoom,
+                                               @RequestParam(required = false) String before,
+                                               @RequestParam(required = false) String after,
+                                               @RequestParam(required = false) Integer limit) {
+        log.info("Getting message history for chat room {} before {} after {}", chatRoom, before, after);
+        try {
+            return ResponseEntity.ok(messageService.getMessagePage(chatRoom, before, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid cursor");
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Failed to get messages: " + e.getMessage());
+        }
+    }
 }
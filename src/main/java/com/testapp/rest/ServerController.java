@@ -1,102 +1,256 @@
 package com.testapp.rest;
 
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.UserDTO;
 import com.testapp.domain.server.ChatMessage;
+import com.testapp.domain.server.MessageAck;
 import com.testapp.domain.server.MessageDecoder;
 import com.testapp.domain.server.MessageEncoder;
+import com.testapp.domain.server.StreamFrame;
+import com.testapp.server.JwtHandshakeConfigurator;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.SessionOutbound;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.ChatRoomService;
+import com.testapp.service.MessageService;
+import com.testapp.service.RecentMessageCache;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.EncodeException;
 import jakarta.websocket.OnClose;
 import jakarta.websocket.OnError;
 import jakarta.websocket.OnMessage;
 import jakarta.websocket.OnOpen;
+import jakarta.websocket.PongMessage;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.PathParam;
 import jakarta.websocket.server.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.List;
 
 @Component
 @ServerEndpoint(value = "/server/message/{chatRoom}",
         decoders = MessageDecoder.class,
-        encoders = MessageEncoder.class )
+        encoders = MessageEncoder.class,
+        configurator = JwtHandshakeConfigurator.class)
 public class ServerController {
 
-    private Session session;
-    private static Set<ServerController> chatEndpoints
-            = new CopyOnWriteArraySet<>();
-    private static HashMap<String, String> rooms = new HashMap<>();
+    public static final String SINCE_PARAMETER = "since";
+
+    private static final Logger log = LoggerFactory.getLogger(ServerController.class);
+
+    // Endpoint instances are created per connection by the WebSocket container, not by Spring,
+    // so shared collaborators are held statically and injected once through the Spring-managed instance
+    private static SessionRegistry sessionRegistry;
+    private static MessageBroadcaster messageBroadcaster;
+    private static MessageService messageService;
+    private static ChatRoomService chatRoomService;
+    private static RecentMessageCache recentMessageCache;
+    private static boolean resumeSupported;
+    private static final MessageEncoder encoder = new MessageEncoder();
+
+    @Autowired
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        ServerController.sessionRegistry = sessionRegistry;
+    }
+
+    @Autowired
+    public void setMessageBroadcaster(MessageBroadcaster messageBroadcaster) {
+        ServerController.messageBroadcaster = messageBroadcaster;
+    }
+
+    @Autowired
+    public void setMessageService(MessageService messageService) {
+        ServerController.messageService = messageService;
+    }
+
+    @Autowired
+    public void setChatRoomService(ChatRoomService chatRoomService) {
+        ServerController.chatRoomService = chatRoomService;
+    }
+
+    @Autowired
+    public void setRecentMessageCache(RecentMessageCache recentMessageCache) {
+        ServerController.recentMessageCache = recentMessageCache;
+    }
+
+    // Offsets only order a room's messages when the whole room lives on one partition
+    @Value("${chat.kafka.producer.room-affinity:true}")
+    public void setResumeSupported(boolean roomAffinity) {
+        ServerController.resumeSupported = roomAffinity;
+    }
 
     @OnOpen
     public void onOpen(
             Session session,
-            @PathParam("chatRoom") String chatRoom) throws IOException, EncodeException {
+            @PathParam("chatRoom") String chatRoom) throws IOException {
+
+        UserDTO user = JwtHandshakeConfigurator.getUser(session);
+        if (user == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Authentication required"));
+            return;
+        }
+        // Only members may read or post in a room, as on the stream endpoint
+        if (!chatRoomService.isParticipant(chatRoom, user.getId())) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Not a participant"));
+            return;
+        }
 
-        this.session = session;
-        chatEndpoints.add(this);
-        rooms.put(session.getId(), chatRoom);
+        List<String> since = session.getRequestParameterMap().get(SINCE_PARAMETER);
+        if (since == null || since.isEmpty()) {
+            sessionRegistry.join(chatRoom, session);
+        } else {
+            Long resumeFrom = null;
+            try {
+                resumeFrom = Long.parseLong(since.get(0));
+            } catch (NumberFormatException e) {
+                // An unusable cursor still connects, but the client has to reload history
+            }
+            if (resumeFrom != null) {
+                resume(session, chatRoom, resumeFrom);
+            } else {
+                sessionRegistry.join(chatRoom, session);
+                resync(session, chatRoom);
+            }
+        }
 
         ChatMessage message = ChatMessage.builder()
                 .chatRoomName(chatRoom)
                 .message("Connected")
                 .build();
 
-        broadcast(message);
+        messageBroadcaster.broadcast(message);
     }
 
     @OnMessage
-    public void onMessage(Session session, ChatMessage message)
-            throws IOException, EncodeException {
+    public void onMessage(Session session, ChatMessage message, @PathParam("chatRoom") String chatRoom) {
 
-        message.setChatRoomName(rooms.get(session.getId()));
-        broadcast(message);
+        // Identity comes from the handshake token, never from the client's frame
+        sessionRegistry.touch(session);
+        UserDTO user = JwtHandshakeConfigurator.getUser(session);
+        if (user == null || !sessionRegistry.isSubscribed(chatRoom, session) || message.getMessage() == null) {
+            return;
+        }
+        publish(session, user, chatRoom, message.getMessage(), message.getCorrelationId());
     }
 
-    @OnClose
-    public void onClose(Session session) throws IOException, EncodeException {
-
-        chatEndpoints.remove(this);
-        ChatMessage message = ChatMessage.builder()
-                .chatRoomName(rooms.get(session.getId()))
-                .message("Disconnected")
-                .build();
+    @OnMessage
+    public void onPong(Session session, PongMessage pong) {
+        sessionRegistry.touch(session);
+    }
 
-        broadcast(message);
+    @OnClose
+    public void onClose(Session session) {
+        disconnect(session);
     }
 
     @OnError
     public void onError(Session session, Throwable throwable) {
-        // Do error handling here
-    }
-
-    private static void broadcast(ChatMessage message)
-            throws IOException, EncodeException {
-
-        chatEndpoints.forEach(endpoint -> {
-            synchronized (endpoint) {
-                try {
-                    // Only broadcast to endpoints in the same room
-                    String endpointRoom = rooms.get(endpoint.session.getId());
-                    if (endpointRoom != null && endpointRoom.equals(message.getChatRoomName())) {
-                        endpoint.session.getBasicRemote().
-                                sendObject(message);
-                    }
-                } catch (IOException | EncodeException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
+        log.debug("Session {} failed", session.getId(), throwable);
+        if (session.isOpen()) {
+            // Errors such as a failed decode leave the socket open: close it, and onClose leaves
+            sessionRegistry.close(session,
+                    new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Session error"));
+        } else {
+            disconnect(session);
+        }
+    }
+
+    private static void disconnect(Session session) {
+        // leave() only returns the rooms once, so an error followed by a close announces it once
+        for (String chatRoom : sessionRegistry.leave(session)) {
+            ChatMessage message = ChatMessage.builder()
+                    .chatRoomName(chatRoom)
+                    .message("Disconnected")
+                    .build();
+
+            messageBroadcaster.broadcast(message);
+        }
+    }
+
+    /**
+     * Joins a reconnecting session to the room and sends it the messages after the last sequence
+     * it saw. The replay runs before the join and a catch-up after it, so every message is either
+     * replayed or broadcast live; one that is both carries the same seq and the client drops it. A
+     * {@code replayed} frame marks the end of the replay, and live frames queued behind the
+     * catch-up may arrive before it. When the recent message cache can't cover the gap the session
+     * is told to resync, and pages through the history it missed instead.
+     */
+    static void resume(Session session, String chatRoom, long since) {
+        SessionOutbound outbound = sessionRegistry.register(session);
+        Long replayedTo = replay(outbound, chatRoom, since);
+        sessionRegistry.join(chatRoom, session);
+        Long caughtUpTo = replayedTo != null ? replay(outbound, chatRoom, replayedTo) : null;
+        if (caughtUpTo == null) {
+            resync(session, chatRoom);
+            return;
+        }
+        outbound.sendControl(encoder.encodeFrame(StreamFrame.builder()
+                .type(StreamFrame.REPLAYED)
+                .chatRoomId(chatRoom)
+                .since(caughtUpTo)
+                .build()));
     }
 
-    // Public method to broadcast messages from Kafka consumer
-    public static void broadcastMessage(ChatMessage message) {
+    /**
+     * Sends the room's cached messages after {@code since}.
+     *
+     * @return the last sequence sent, {@code since} if nothing was missed, or null when the cache
+     * can't cover the gap
+     */
+    private static Long replay(SessionOutbound outbound, String chatRoom, long since) {
+        List<ChatMessageSummary> missed = resumeSupported ? recentMessageCache.getSince(chatRoom, since) : null;
+        if (missed == null) {
+            return null;
+        }
+        if (missed.isEmpty()) {
+            return since;
+        }
         try {
-            broadcast(message);
-        } catch (IOException | EncodeException e) {
-            e.printStackTrace();
+            outbound.send(encoder.encodeAll(missed.stream().map(ChatMessage::from).toList()));
+        } catch (EncodeException e) {
+            log.error("Failed to replay messages for session {}", outbound.getId(), e);
+            return null;
+        }
+        return missed.get(missed.size() - 1).getSeq();
+    }
+
+    private static void resync(Session session, String chatRoom) {
+        SessionOutbound outbound = sessionRegistry.getOutbound(session);
+        if (outbound != null) {
+            outbound.sendControl(encoder.encodeFrame(StreamFrame.builder()
+                    .type(StreamFrame.RESYNC)
+                    .chatRoomId(chatRoom)
+                    .build()));
         }
     }
+
+    /**
+     * Publishes a message sent over a socket like a REST send, so every node and the persistence
+     * consumer see it. The sender gets an ack frame and the message itself arrives through the
+     * normal broadcast.
+     */
+    static void publish(Session session, UserDTO user, String chatRoom, String text, String correlationId) {
+        ChatMessageDTO messageDTO = new ChatMessageDTO();
+        messageDTO.setUserId(user);
+        messageDTO.setMessage(text);
+        // Sent from a worker: the producer can block, and this runs on the socket's container thread
+        messageService.publishMessageAsync(chatRoom, messageDTO).whenComplete((sent, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish message from session {}", session.getId(), ex);
+            }
+            SessionOutbound outbound = sessionRegistry.getOutbound(session);
+            if (outbound != null && correlationId != null) {
+                outbound.sendControl(encoder.encodeAck(new MessageAck(correlationId,
+                        messageDTO.getId(), messageDTO.getTimeSent(), ex == null)));
+            }
+        });
+    }
 }
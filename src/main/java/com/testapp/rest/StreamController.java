@@ -0,0 +1,151 @@
+package com.testapp.rest;
+
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.domain.server.MessageEncoder;
+import com.testapp.domain.server.StreamFrame;
+import com.testapp.domain.server.StreamFrameDecoder;
+import com.testapp.server.JwtHandshakeConfigurator;
+import com.testapp.server.SessionOutbound;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.ChatRoomService;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.PongMessage;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Multiplexed chat endpoint: one socket per client, subscribed to any number of rooms with
+ * subscribe/unsubscribe frames. Messages for every subscribed room arrive on the same socket,
+ * tagged with their chatRoomName, and messages can be sent to any subscribed room.
+ */
+@Component
+@ServerEndpoint(value = "/server/stream",
+        decoders = StreamFrameDecoder.class,
+        configurator = JwtHandshakeConfigurator.class)
+public class StreamController {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamController.class);
+
+    // Endpoint instances are created per connection by the WebSocket container, so collaborators are static
+    private static SessionRegistry sessionRegistry;
+    private static ChatRoomService chatRoomService;
+    private static int maxSubscriptions;
+    private static final MessageEncoder encoder = new MessageEncoder();
+
+    @Autowired
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        StreamController.sessionRegistry = sessionRegistry;
+    }
+
+    @Autowired
+    public void setChatRoomService(ChatRoomService chatRoomService) {
+        StreamController.chatRoomService = chatRoomService;
+    }
+
+    @Value("${chat.websocket.stream.max-subscriptions:500}")
+    public void setMaxSubscriptions(int maxSubscriptions) {
+        StreamController.maxSubscriptions = maxSubscriptions;
+    }
+
+    @OnOpen
+    public void onOpen(Session session) throws IOException {
+        if (JwtHandshakeConfigurator.getUser(session) == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Authentication required"));
+            return;
+        }
+        sessionRegistry.register(session);
+    }
+
+    @OnMessage
+    public void onMessage(Session session, StreamFrame frame) {
+        sessionRegistry.touch(session);
+        UserDTO user = JwtHandshakeConfigurator.getUser(session);
+        String chatRoom = frame.getChatRoomId();
+        if (user == null || frame.getType() == null || chatRoom == null) {
+            reply(session, StreamFrame.ERROR, chatRoom, "Malformed frame");
+            return;
+        }
+
+        switch (frame.getType()) {
+            case StreamFrame.SUBSCRIBE -> subscribe(session, user, chatRoom, frame.getSince());
+            case StreamFrame.UNSUBSCRIBE -> {
+                sessionRegistry.unsubscribe(chatRoom, session);
+                reply(session, StreamFrame.UNSUBSCRIBED, chatRoom, null);
+            }
+            case StreamFrame.SEND -> {
+                if (!sessionRegistry.isSubscribed(chatRoom, session) || frame.getMessage() == null) {
+                    reply(session, StreamFrame.ERROR, chatRoom, "Not subscribed");
+                    return;
+                }
+                ServerController.publish(session, user, chatRoom, frame.getMessage(), frame.getCorrelationId());
+            }
+            default -> reply(session, StreamFrame.ERROR, chatRoom, "Unknown frame type");
+        }
+    }
+
+    @OnMessage
+    public void onPong(Session session, PongMessage pong) {
+        sessionRegistry.touch(session);
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        sessionRegistry.leave(session);
+    }
+
+    @OnError
+    public void onError(Session session, Throwable throwable) {
+        log.debug("Stream session {} failed", session.getId(), throwable);
+        if (session.isOpen()) {
+            // Errors such as a failed decode leave the socket open: close it, and onClose leaves
+            sessionRegistry.close(session,
+                    new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Session error"));
+        } else {
+            sessionRegistry.leave(session);
+        }
+    }
+
+    private static void subscribe(Session session, UserDTO user, String chatRoom, Long since) {
+        if (sessionRegistry.isSubscribed(chatRoom, session)) {
+            reply(session, StreamFrame.SUBSCRIBED, chatRoom, null);
+            return;
+        }
+        if (sessionRegistry.getRooms(session).size() >= maxSubscriptions) {
+            reply(session, StreamFrame.ERROR, chatRoom, "Too many subscriptions");
+            return;
+        }
+        // Only members receive a room's messages
+        if (!chatRoomService.isParticipant(chatRoom, user.getId())) {
+            reply(session, StreamFrame.ERROR, chatRoom, "Not a participant");
+            return;
+        }
+        if (since != null) {
+            ServerController.resume(session, chatRoom, since);
+        } else {
+            sessionRegistry.join(chatRoom, session);
+        }
+        reply(session, StreamFrame.SUBSCRIBED, chatRoom, null);
+    }
+
+    private static void reply(Session session, String type, String chatRoom, String reason) {
+        SessionOutbound outbound = sessionRegistry.getOutbound(session);
+        if (outbound != null) {
+            outbound.sendControl(encoder.encodeFrame(StreamFrame.builder()
+                    .type(type)
+                    .chatRoomId(chatRoom)
+                    .reason(reason)
+                    .build()));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.testapp.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings every open WebSocket session and closes the ones that stop answering, so half-open
+ * sockets don't linger in the {@link SessionRegistry}. Sessions sit in a hashed timer wheel
+ * driven by a single thread: each tick visits one slot, pings the sessions due there and moves
+ * them to the slot of their next ping, so the cost per tick is proportional to the sessions due
+ * rather than to all of them. Pings and closes are handed to the session's {@link SessionOutbound},
+ * so a stalled client never blocks the wheel thread.
+ */
+@Component
+public class HeartbeatMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatMonitor.class);
+
+    @Value("${chat.websocket.heartbeat.ping-interval-ms:25000}")
+    private long pingIntervalMs;
+
+    @Value("${chat.websocket.heartbeat.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${chat.websocket.heartbeat.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${chat.websocket.heartbeat.wheel-size:512}")
+    private int wheelSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Sessions registered since the last tick; only the wheel thread touches the slots themselves
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private ArrayDeque<Entry>[] wheel;
+    private long tick;
+    private ScheduledExecutorService ticker;
+
+    private final Counter pings;
+    private final Counter idleCloses;
+
+    public HeartbeatMonitor(MeterRegistry meterRegistry) {
+        Gauge.builder("chat.websocket.heartbeat.sessions", entries, Map::size)
+                .description("WebSocket sessions watched by the heartbeat monitor")
+                .register(meterRegistry);
+        pings = meterRegistry.counter("chat.websocket.heartbeat.pings");
+        idleCloses = meterRegistry.counter("chat.websocket.heartbeat.idle.closes");
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    void start() {
+        wheel = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    public void watch(SessionOutbound outbound) {
+        Entry entry = new Entry(outbound, System.currentTimeMillis());
+        if (entries.putIfAbsent(outbound.getId(), entry) == null) {
+            pending.add(entry);
+        }
+    }
+
+    /**
+     * Stops watching the session. Its wheel entry is dropped lazily when its slot comes round.
+     */
+    public void unwatch(Session session) {
+        Entry entry = entries.remove(session.getId());
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    /**
+     * Records that the session is alive, from a pong or any inbound frame.
+     */
+    public void touch(Session session) {
+        Entry entry = entries.get(session.getId());
+        if (entry != null) {
+            entry.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    private void advance() {
+        try {
+            Entry added;
+            while ((added = pending.poll()) != null) {
+                schedule(added, pingIntervalMs);
+            }
+
+            long now = System.currentTimeMillis();
+            Iterator<Entry> due = wheel[(int) (tick % wheelSize)].iterator();
+            ArrayDeque<Entry> rescheduled = new ArrayDeque<>();
+            while (due.hasNext()) {
+                Entry entry = due.next();
+                if (entry.cancelled) {
+                    due.remove();
+                } else if (entry.rounds > 0) {
+                    entry.rounds--;
+                } else {
+                    due.remove();
+                    if (check(entry, now)) {
+                        rescheduled.add(entry);
+                    }
+                }
+            }
+            tick++;
+            for (Entry entry : rescheduled) {
+                schedule(entry, pingIntervalMs);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the fixed-rate task and stop every heartbeat
+            log.error("Heartbeat tick failed", e);
+        }
+    }
+
+    private void schedule(Entry entry, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        entry.rounds = (ticks - 1) / wheelSize;
+        wheel[(int) ((tick + ticks) % wheelSize)].add(entry);
+    }
+
+    /**
+     * Pings a live session, or closes one that has been silent past the idle timeout.
+     *
+     * @return whether the session stays on the wheel
+     */
+    private boolean check(Entry entry, long now) {
+        Session session = entry.outbound.getSession();
+        if (!session.isOpen()) {
+            unwatch(session);
+            return false;
+        }
+        if (now - entry.lastSeen >= idleTimeoutMs) {
+            unwatch(session);
+            idleCloses.increment();
+            log.debug("Closing idle session {}", session.getId());
+            entry.outbound.closeSession(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Idle timeout"));
+            return false;
+        }
+        // Queued behind any write in flight and sent off this thread
+        entry.outbound.ping();
+        pings.increment();
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final SessionOutbound outbound;
+        private volatile long lastSeen;
+        private volatile boolean cancelled;
+        // Full revolutions left before the entry is due; only read and written by the wheel thread
+        private long rounds;
+
+        Entry(SessionOutbound outbound, long lastSeen) {
+            this.outbound = outbound;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
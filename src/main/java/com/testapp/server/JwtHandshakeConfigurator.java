@@ -0,0 +1,77 @@
+package com.testapp.server;
+
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.service.JwtService;
+import com.testapp.service.UserService;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Verifies the JWT passed as the {@code token} query parameter of a WebSocket handshake and
+ * binds the authenticated user to the session. Browsers can't set an Authorization header on
+ * a WebSocket upgrade, so the token travels in the URL instead.
+ */
+@Component
+public class JwtHandshakeConfigurator extends ServerEndpointConfig.Configurator {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtHandshakeConfigurator.class);
+
+    public static final String TOKEN_PARAMETER = "token";
+    private static final String USER_PROPERTY = "chat.user";
+
+    // The container instantiates configurators itself, so collaborators are injected statically
+    private static JwtService jwtService;
+    private static UserService userService;
+
+    @Autowired
+    public void setJwtService(JwtService jwtService) {
+        JwtHandshakeConfigurator.jwtService = jwtService;
+    }
+
+    @Autowired
+    public void setUserService(UserService userService) {
+        JwtHandshakeConfigurator.userService = userService;
+    }
+
+    @Override
+    public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+        // The container hands each handshake its own copy of the config, which becomes the session's user properties
+        config.getUserProperties().remove(USER_PROPERTY);
+        List<String> tokens = request.getParameterMap().get(TOKEN_PARAMETER);
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        UserDTO user = authenticate(tokens.get(0));
+        if (user != null) {
+            config.getUserProperties().put(USER_PROPERTY, user);
+        }
+    }
+
+    /**
+     * @return the user bound to the session at handshake time, or null if it did not authenticate
+     */
+    public static UserDTO getUser(Session session) {
+        return (UserDTO) session.getUserProperties().get(USER_PROPERTY);
+    }
+
+    private static UserDTO authenticate(String token) {
+        try {
+            UserDTO user = jwtService.extractUser(token);
+            if (user == null) {
+                user = userService.getUserByUsername(jwtService.extractUsername(token));
+            }
+            return user != null && jwtService.isTokenValid(token, user) ? user : null;
+        } catch (Exception e) {
+            log.debug("Rejected WebSocket handshake token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.testapp.server;
+
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.domain.server.MessageEncoder;
+import jakarta.websocket.EncodeException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivers chat messages to the sessions this instance holds in a room. Each message is encoded
+ * once and the same text frame is queued on every recipient's outbound queue, so a slow client
+ * can't stall the caller.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageBroadcaster.class);
+
+    private final MessageEncoder encoder = new MessageEncoder();
+
+    private final SessionRegistry sessionRegistry;
+
+    public void broadcast(ChatMessage message) {
+        // Only the sessions subscribed to the message's room are visited
+        Set<SessionOutbound> sessions = sessionRegistry.getSessions(message.getChatRoomName());
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            send(sessions, encoder.encode(message));
+        } catch (EncodeException e) {
+            log.error("Failed to broadcast message to chat room {}", message.getChatRoomName(), e);
+        }
+    }
+
+    /**
+     * Delivers several messages for one room as a single JSON array frame.
+     */
+    public void broadcast(String chatRoom, List<ChatMessage> messages) {
+        if (messages.size() == 1) {
+            broadcast(messages.get(0));
+            return;
+        }
+
+        Set<SessionOutbound> sessions = sessionRegistry.getSessions(chatRoom);
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            send(sessions, encoder.encodeAll(messages));
+        } catch (EncodeException e) {
+            log.error("Failed to encode {} messages for chat room {}", messages.size(), chatRoom, e);
+        }
+    }
+
+    private static void send(Set<SessionOutbound> sessions, String frame) {
+        for (SessionOutbound outbound : sessions) {
+            outbound.send(frame);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.testapp.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class OutboundMetrics {
+
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final DistributionSummary queueDepth;
+    private final Counter sentFrames;
+    private final Counter failedFrames;
+    private final Counter droppedFrames;
+    private final Counter coalescedFrames;
+    private final Counter overflowDisconnects;
+
+    public OutboundMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("chat.websocket.outbound.queued", queuedFrames, AtomicLong::get)
+                .description("Frames waiting in session outbound queues")
+                .register(meterRegistry);
+        queueDepth = DistributionSummary.builder("chat.websocket.outbound.queue.depth")
+                .description("Depth of a session's outbound queue when a frame is enqueued")
+                .register(meterRegistry);
+        sentFrames = meterRegistry.counter("chat.websocket.outbound.frames", "result", "sent");
+        failedFrames = meterRegistry.counter("chat.websocket.outbound.frames", "result", "failed");
+        droppedFrames = meterRegistry.counter("chat.websocket.outbound.frames", "result", "dropped");
+        coalescedFrames = meterRegistry.counter("chat.websocket.outbound.frames", "result", "coalesced");
+        overflowDisconnects = meterRegistry.counter("chat.websocket.outbound.overflow.disconnects");
+    }
+
+    void enqueued(int depth) {
+        queuedFrames.incrementAndGet();
+        queueDepth.record(depth);
+    }
+
+    void dequeued(int count) {
+        queuedFrames.addAndGet(-count);
+    }
+
+    void sent() {
+        sentFrames.increment();
+    }
+
+    void failed() {
+        failedFrames.increment();
+    }
+
+    void dropped(int count) {
+        droppedFrames.increment(count);
+    }
+
+    void coalesced(int count) {
+        coalescedFrames.increment(count);
+    }
+
+    void overflowDisconnect() {
+        overflowDisconnects.increment();
+    }
+}
@@ -0,0 +1,13 @@
+package com.testapp.server;
+
+/**
+ * What a session's outbound queue does when a frame arrives and the queue is full.
+ */
+public enum OverflowPolicy {
+    /** Discard the oldest queued frame to make room for the new one. */
+    DROP_OLDEST,
+    /** Close the session; the client is expected to reconnect and reload. */
+    DISCONNECT,
+    /** Merge everything queued plus the new frame into a single JSON array frame. */
+    COALESCE
+}
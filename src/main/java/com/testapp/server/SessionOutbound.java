@@ -0,0 +1,375 @@
+package com.testapp.server;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded outbound queue for one WebSocket session. Frames are written with the async remote,
+ * one at a time, so a slow client only ever backs up its own queue and never blocks the caller.
+ * Chat payloads may be dropped or coalesced on overflow; control frames such as acks are always
+ * delivered as frames of their own. Pings take their turn between frames, so they never race a
+ * write in flight.
+ */
+public class SessionOutbound {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionOutbound.class);
+
+    // Upper bound for a coalesced frame; past this a client that never drains is disconnected instead
+    private static final int MAX_COALESCED_LENGTH = 1 << 20;
+
+    private static final ByteBuffer PING_PAYLOAD = ByteBuffer.allocate(0);
+
+    private final Session session;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final OutboundMetrics metrics;
+    // Close and ping frames go out with blocking sends, which must not run on the caller's thread
+    private final Executor controlExecutor;
+
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean pingPending;
+    private boolean closed;
+
+    public SessionOutbound(Session session, int capacity, OverflowPolicy overflowPolicy, OutboundMetrics metrics,
+                           Executor controlExecutor) {
+        this.session = session;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+        this.controlExecutor = controlExecutor;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    /**
+     * Queues a chat payload: a message or an array of messages.
+     */
+    public void send(String frame) {
+        enqueue(new Frame(frame, false));
+    }
+
+    /**
+     * Queues a control frame, such as an ack or a subscription reply. Overflow drops queued chat
+     * payloads before control frames, and never merges control frames into a coalesced array.
+     */
+    public void sendControl(String frame) {
+        enqueue(new Frame(frame, true));
+    }
+
+    private void enqueue(Frame frame) {
+        boolean overflowed = false;
+        boolean absorbed = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST -> {
+                        dropOldest();
+                        metrics.dequeued(1);
+                        metrics.dropped(1);
+                    }
+                    case COALESCE -> {
+                        absorbed = coalesce(frame);
+                        overflowed = !absorbed && queue.size() >= capacity;
+                    }
+                    case DISCONNECT -> overflowed = true;
+                }
+            }
+            if (!overflowed) {
+                if (!absorbed) {
+                    queue.addLast(frame);
+                    metrics.enqueued(queue.size());
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+        }
+
+        if (overflowed) {
+            disconnect();
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Pings the client once the write in flight, if any, completes. A ping already waiting for its
+     * turn absorbs this one.
+     */
+    public void ping() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pingPending = true;
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        drain();
+    }
+
+    /**
+     * Discards anything still queued; called once the session has left the registry.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            metrics.dequeued(queue.size());
+            queue.clear();
+        }
+    }
+
+    /**
+     * Closes the session off the caller's thread. The close frame queues behind any write still
+     * in flight, so closing a stalled client inline would block the caller until it times out.
+     */
+    public void closeSession(CloseReason reason) {
+        controlExecutor.execute(() -> {
+            try {
+                session.close(reason);
+            } catch (IOException e) {
+                log.debug("Failed to close session {}", session.getId(), e);
+            }
+        });
+    }
+
+    private void disconnect() {
+        int dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = queue.size() + 1;
+            metrics.dequeued(queue.size());
+            queue.clear();
+        }
+        metrics.dropped(dropped);
+        metrics.overflowDisconnect();
+        log.warn("Outbound queue for session {} overflowed, disconnecting", session.getId());
+        closeSession(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Outbound queue full"));
+    }
+
+    // Called with the lock held and the queue full
+    private void dropOldest() {
+        Iterator<Frame> frames = queue.iterator();
+        while (frames.hasNext()) {
+            if (!frames.next().control()) {
+                frames.remove();
+                return;
+            }
+        }
+        queue.pollFirst();
+    }
+
+    /**
+     * Merges each run of consecutive queued chat payloads into a single array frame in the run's
+     * place, and a new chat payload into the run at the tail of the queue. Control frames keep
+     * their position between the runs, so a control frame is never overtaken by payloads queued
+     * after it nor delivered ahead of payloads queued before it. Called with the lock held.
+     *
+     * @return true if the new frame was merged into the tail of the queue
+     */
+    private boolean coalesce(Frame frame) {
+        int queued = queue.size();
+        Deque<Frame> merged = new ArrayDeque<>(queued + 1);
+        List<Frame> run = new ArrayList<>();
+        for (Frame next : queue) {
+            if (next.control()) {
+                flush(run, merged);
+                merged.addLast(next);
+            } else {
+                run.add(next);
+            }
+        }
+        boolean absorbed = false;
+        if (!frame.control() && !run.isEmpty()) {
+            run.add(frame);
+            absorbed = merge(run, merged);
+            if (!absorbed) {
+                run.remove(run.size() - 1);
+            }
+        }
+        if (!absorbed) {
+            flush(run, merged);
+        }
+        queue.clear();
+        queue.addAll(merged);
+        metrics.dequeued(queued - queue.size());
+        return absorbed;
+    }
+
+    // Queues a run of chat payloads as one frame, or frame by frame when merged it would grow too large
+    private void flush(List<Frame> run, Deque<Frame> frames) {
+        if (!run.isEmpty() && !merge(run, frames)) {
+            frames.addAll(run);
+        }
+        run.clear();
+    }
+
+    private boolean merge(List<Frame> run, Deque<Frame> frames) {
+        if (run.size() == 1) {
+            frames.addLast(run.get(0));
+            return true;
+        }
+        String text = coalesce(run.stream().map(Frame::text).toList());
+        if (text.length() > MAX_COALESCED_LENGTH) {
+            return false;
+        }
+        frames.addLast(new Frame(text, false));
+        metrics.coalesced(run.size());
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame = null;
+            boolean ping = false;
+            synchronized (this) {
+                if (!closed && pingPending) {
+                    pingPending = false;
+                    ping = true;
+                } else {
+                    frame = closed ? null : queue.pollFirst();
+                    if (frame == null) {
+                        sending = false;
+                        return;
+                    }
+                    metrics.dequeued(1);
+                }
+            }
+
+            if (ping) {
+                if (sendPing()) {
+                    // The ping task continues draining once the ping is written
+                    return;
+                }
+                continue;
+            }
+
+            Completion completion = new Completion();
+            try {
+                session.getAsyncRemote().sendText(frame.text(), completion);
+            } catch (RuntimeException e) {
+                // The container rejects sends on a closing session; treat it as a failed write
+                completion.failed(e);
+            }
+            if (!completion.completedInline()) {
+                // The write is still in flight; its callback continues draining
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands the ping to the control executor: the container writes pings with a blocking send even
+     * on the async remote.
+     *
+     * @return false if the executor is shut down and the ping was not sent
+     */
+    private boolean sendPing() {
+        try {
+            controlExecutor.execute(() -> {
+                try {
+                    session.getBasicRemote().sendPing(PING_PAYLOAD.duplicate());
+                } catch (IOException | RuntimeException e) {
+                    // Left for the idle timeout to close if the socket really is gone
+                    log.debug("Failed to ping session {}", session.getId(), e);
+                } finally {
+                    drain();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static String coalesce(List<String> payloads) {
+        StringBuilder builder = new StringBuilder("[");
+        for (String payload : payloads) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            appendElements(builder, payload);
+        }
+        return builder.append(']').toString();
+    }
+
+    private static void appendElements(StringBuilder builder, String frame) {
+        // Frames that are already arrays are flattened so clients only ever see one level
+        if (frame.startsWith("[")) {
+            builder.append(frame, 1, frame.length() - 1);
+        } else {
+            builder.append(frame);
+        }
+    }
+
+    private record Frame(String text, boolean control) {
+    }
+
+    /**
+     * Tracks whether the container completed the write before or after sendText returned, so
+     * inline completions are drained by a loop instead of recursing through the callback.
+     */
+    private final class Completion implements SendHandler {
+
+        private static final int PENDING = 0;
+        private static final int RETURNED = 1;
+        private static final int COMPLETED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        @Override
+        public void onResult(SendResult result) {
+            if (result.isOK()) {
+                metrics.sent();
+            } else {
+                metrics.failed();
+                log.debug("Failed to send frame to session {}", session.getId(), result.getException());
+            }
+            complete();
+        }
+
+        void failed(Throwable throwable) {
+            metrics.failed();
+            log.debug("Failed to send frame to session {}", session.getId(), throwable);
+            complete();
+        }
+
+        boolean completedInline() {
+            return !state.compareAndSet(PENDING, RETURNED);
+        }
+
+        private void complete() {
+            if (!state.compareAndSet(PENDING, COMPLETED)) {
+                drain();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.testapp.server;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Index of open WebSocket sessions by chat room, so a broadcast only touches the
+ * sessions subscribed to that room. A session can be subscribed to any number of rooms;
+ * subscribing and unsubscribing are O(1).
+ */
+@Component
+@RequiredArgsConstructor
+public class SessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private final OutboundMetrics outboundMetrics;
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    @Value("${chat.websocket.outbound.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${chat.websocket.outbound.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    private final Map<String, Set<SessionOutbound>> roomSessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionRooms = new ConcurrentHashMap<>();
+    private final Map<String, SessionOutbound> outbounds = new ConcurrentHashMap<>();
+    // Server-initiated closes and pings are blocking sends that can stall on a slow client,
+    // so they get threads of their own
+    private final ExecutorService controlExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ws-control");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Registers the session's outbound queue without subscribing it to any room, and starts
+     * heartbeating it.
+     */
+    public SessionOutbound register(Session session) {
+        sessionRooms.computeIfAbsent(session.getId(), id -> ConcurrentHashMap.newKeySet());
+        return outbounds.computeIfAbsent(session.getId(), id -> {
+            SessionOutbound outbound =
+                    new SessionOutbound(session, queueCapacity, overflowPolicy, outboundMetrics, controlExecutor);
+            heartbeatMonitor.watch(outbound);
+            return outbound;
+        });
+    }
+
+    public SessionOutbound join(String chatRoom, Session session) {
+        SessionOutbound outbound = register(session);
+        sessionRooms.get(session.getId()).add(chatRoom);
+        roomSessions.compute(chatRoom, (room, sessions) -> {
+            Set<SessionOutbound> members = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            members.add(outbound);
+            return members;
+        });
+        return outbound;
+    }
+
+    /**
+     * Unsubscribes the session from one room, keeping it registered for its others.
+     */
+    public void unsubscribe(String chatRoom, Session session) {
+        Set<String> rooms = sessionRooms.get(session.getId());
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (rooms == null || outbound == null || !rooms.remove(chatRoom)) {
+            return;
+        }
+        removeFromRoom(chatRoom, outbound);
+    }
+
+    /**
+     * Removes the session from all of its rooms and discards its pending frames.
+     *
+     * @return the rooms the session was subscribed to
+     */
+    public Set<String> leave(Session session) {
+        heartbeatMonitor.unwatch(session);
+        SessionOutbound outbound = outbounds.remove(session.getId());
+        Set<String> rooms = sessionRooms.remove(session.getId());
+        if (rooms == null) {
+            rooms = Collections.emptySet();
+        }
+        if (outbound == null) {
+            return rooms;
+        }
+        outbound.close();
+        for (String chatRoom : rooms) {
+            removeFromRoom(chatRoom, outbound);
+        }
+        return rooms;
+    }
+
+    /**
+     * Closes the session off the caller's thread. The session stays registered until its
+     * {@code @OnClose} calls {@link #leave}.
+     */
+    public void close(Session session, CloseReason reason) {
+        SessionOutbound outbound = outbounds.get(session.getId());
+        if (outbound != null) {
+            outbound.closeSession(reason);
+            return;
+        }
+        controlExecutor.execute(() -> {
+            try {
+                session.close(reason);
+            } catch (IOException e) {
+                log.debug("Failed to close session {}", session.getId(), e);
+            }
+        });
+    }
+
+    /**
+     * Records inbound traffic from the session, so the heartbeat monitor knows it is alive.
+     */
+    public void touch(Session session) {
+        heartbeatMonitor.touch(session);
+    }
+
+    public Set<String> getRooms(Session session) {
+        Set<String> rooms = sessionRooms.get(session.getId());
+        return rooms != null ? Collections.unmodifiableSet(rooms) : Collections.emptySet();
+    }
+
+    public boolean isSubscribed(String chatRoom, Session session) {
+        return getRooms(session).contains(chatRoom);
+    }
+
+    public SessionOutbound getOutbound(Session session) {
+        return outbounds.get(session.getId());
+    }
+
+    public Set<SessionOutbound> getSessions(String chatRoom) {
+        if (chatRoom == null) {
+            return Collections.emptySet();
+        }
+        Set<SessionOutbound> sessions = roomSessions.get(chatRoom);
+        return sessions != null ? Collections.unmodifiableSet(sessions) : Collections.emptySet();
+    }
+
+    public int getSessionCount() {
+        return outbounds.size();
+    }
+
+    public int getRoomCount() {
+        return roomSessions.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        controlExecutor.shutdown();
+    }
+
+    private void removeFromRoom(String chatRoom, SessionOutbound outbound) {
+        // Drop the room entry once its last session leaves so idle rooms don't accumulate
+        roomSessions.computeIfPresent(chatRoom, (room, sessions) -> {
+            sessions.remove(outbound);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
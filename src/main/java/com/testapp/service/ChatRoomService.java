@@ -2,6 +2,7 @@ package com.testapp.service;
 
 import com.testapp.domain.dto.ChatRoomDTO;
 import com.testapp.domain.ChatRoomDetails;
+import com.testapp.domain.IdGenerator;
 import com.testapp.domain.RoomManagement;
 import com.testapp.domain.dto.UserDTO;
 import com.testapp.exceptions.UserExistsException;
@@ -11,10 +12,10 @@ import com.testapp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.util.Strings;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,10 +27,9 @@ public class ChatRoomService {
     private final UserRepository userRepository;
 
     public ChatRoomDetails getChatRoom(String id) {
-        Optional<ChatRoomDTO> chatRoom = chatRoomRepository.findById(id);
+        Optional<ChatRoomDTO> chatRoom = chatRoomRepository.findWithAdminById(id);
         if (chatRoom.isPresent()) {
-            int participantCount = roomManagementRepository.findParticipantCountByChatRoomId(id);
-            return createRoomDetails(chatRoom.get(), participantCount);
+            return createRoomDetails(chatRoom.get(), chatRoom.get().getParticipantCount());
         }
         return null;
     }
@@ -42,6 +42,10 @@ public class ChatRoomService {
                 .collect(Collectors.toList());
     }
 
+    public boolean isParticipant(String chatRoomId, String userId) {
+        return roomManagementRepository.existsByUserIdAndChatRoomId(userId, chatRoomId);
+    }
+
     public ChatRoomDTO createChatRoom(ChatRoomDTO chatRoomDTO) {
         if (Strings.isEmpty(chatRoomDTO.getDisplayName())) {
             throw new RuntimeException("Display name cannot be empty");
@@ -51,7 +55,9 @@ public class ChatRoomService {
             throw new UserExistsException("Chat Room " + chatRoomDTO.getDisplayName() + " is already taken.");
         }
 
-        chatRoomDTO.setId(UUID.randomUUID().toString());
+        chatRoomDTO.setId(IdGenerator.newId());
+        // The admin is the first participant
+        chatRoomDTO.setParticipantCount(1);
         ChatRoomDTO room = chatRoomRepository.save(chatRoomDTO);
         roomManagementRepository.save(RoomManagement.builder()
                 .id(new RoomManagement.RoomManagementId(room.getAdmin().getId(), room.getId()))
@@ -62,9 +68,10 @@ public class ChatRoomService {
         return room;
     }
 
+    @Transactional
     public RoomManagement addUserToRoom(ChatRoomDTO chatRoomDTO, UserDTO user) {
         // Validate that the chat room exists
-        Optional<ChatRoomDTO> roomOptional = chatRoomRepository.findById(chatRoomDTO.getId());
+        Optional<ChatRoomDTO> roomOptional = chatRoomRepository.findWithAdminById(chatRoomDTO.getId());
         if (roomOptional.isEmpty()) {
             throw new RuntimeException("Chat room with id " + chatRoomDTO.getId() + " does not exist");
         }
@@ -91,17 +98,13 @@ public class ChatRoomService {
                 .isAdmin(false)
                 .build();
 
-        return roomManagementRepository.save(roomManagement);
+        RoomManagement saved = roomManagementRepository.save(roomManagement);
+        chatRoomRepository.incrementParticipantCount(room.getId());
+        return saved;
     }
 
     public List<ChatRoomDetails> getChatRoomsForUser(String userId) {
-        List<RoomManagement> roomManagements = roomManagementRepository.findByUserId(userId);
-        return roomManagements.stream()
-                .map(rm -> {
-                    int participantCount = roomManagementRepository.findParticipantCountByChatRoomId(rm.getChatRoom().getId());
-                    return createRoomDetails(rm.getChatRoom(), participantCount);
-                })
-                .collect(Collectors.toList());
+        return chatRoomRepository.findDetailsByUserId(userId);
     }
 
     private ChatRoomDetails createRoomDetails(ChatRoomDTO room, int participantCount) {
@@ -1,9 +1,12 @@
 package com.testapp.service;
 
+import com.testapp.domain.dto.UserDTO;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -11,18 +14,47 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String FIRST_NAME_CLAIM = "given_name";
+    private static final String LAST_NAME_CLAIM = "family_name";
+    private static final String EMAIL_CLAIM = "email";
+
     @Value("${security.jwt.secret-key}")
     private String secretKey;
 
     @Value("${security.jwt.expiration-time}")
     private long jwtExpiration;
 
+    @Value("${security.jwt.claims-cache.max-entries:10000}")
+    private int maxCachedTokens;
+
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    // Verified token -> claims, least recently used first, so each request verifies a signature at
+    // most once per token lifetime. Lookups reorder it, so every access holds its monitor
+    private Map<String, Claims> verifiedClaims;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parser().verifyWith(signInKey).build();
+        verifiedClaims = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > maxCachedTokens;
+            }
+        };
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,6 +68,38 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * Issues a token that also carries the user's profile, so requests can rebuild the
+     * principal from the token without loading the user.
+     */
+    public String generateToken(UserDTO user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(FIRST_NAME_CLAIM, user.getFirstName());
+        claims.put(LAST_NAME_CLAIM, user.getLastName());
+        claims.put(EMAIL_CLAIM, user.getEmail());
+        return generateToken(claims, user);
+    }
+
+    /**
+     * @return the principal described by the token's claims, or null for tokens issued
+     * without the user's profile
+     */
+    public UserDTO extractUser(String token) {
+        Claims claims = extractAllClaims(token);
+        String id = claims.get(USER_ID_CLAIM, String.class);
+        if (id == null) {
+            return null;
+        }
+        return UserDTO.builder()
+                .id(id)
+                .username(claims.getSubject())
+                .firstName(claims.get(FIRST_NAME_CLAIM, String.class))
+                .lastName(claims.get(LAST_NAME_CLAIM, String.class))
+                .email(claims.get(EMAIL_CLAIM, String.class))
+                .build();
+    }
+
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return buildToken(extraClaims, userDetails, jwtExpiration);
     }
@@ -60,29 +124,37 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private Claims extractAllClaims(String token) {
+        synchronized (verifiedClaims) {
+            Claims claims = verifiedClaims.get(token);
+            if (claims != null) {
+                if (!isExpired(claims)) {
+                    return claims;
+                }
+                // Expired tokens are dropped when they come back; the rest age out as least recently used
+                verifiedClaims.remove(token);
+            }
+        }
+        // The parser rejects expired tokens itself, so only live tokens are cached
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (maxCachedTokens > 0) {
+            synchronized (verifiedClaims) {
+                verifiedClaims.put(token, claims);
+            }
+        }
+        return claims;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
     private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 }
@@ -1,17 +1,34 @@
 package com.testapp.service;
 
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.IdGenerator;
+import com.testapp.domain.MessageCursor;
+import com.testapp.domain.MessagePage;
 import com.testapp.domain.dto.ChatMessageDTO;
 import com.testapp.domain.dto.ChatRoomDTO;
 import com.testapp.kafka.KProducer;
 import com.testapp.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -21,16 +38,139 @@ public class MessageService {
 
     private final KProducer messageProducer;
     private final ChatMessageRepository messageRepository;
+    private final RecentMessageCache recentMessageCache;
 
-    public ChatMessageDTO sendMessage(String chatRoomId, ChatMessageDTO chatMessageDTO) {
-        chatMessageDTO.setId(UUID.randomUUID().toString());
+    @Value("${chat.message.history.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${chat.message.history.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${chat.message.publish.threads:4}")
+    private int publishThreads;
+
+    @Value("${chat.message.publish.queue-capacity:1000}")
+    private int publishQueueCapacity;
+
+    // How long a REST send waits for the broker before giving up on the request
+    @Value("${chat.message.publish.timeout-ms:5000}")
+    private long publishTimeoutMs;
+
+    private ThreadPoolExecutor publishExecutor;
+
+    @PostConstruct
+    void startPublishExecutor() {
+        publishExecutor = new ThreadPoolExecutor(publishThreads, publishThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(publishQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-publish");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stopPublishExecutor() {
+        publishExecutor.shutdown();
+    }
+
+    /**
+     * Publishes a message and waits for the broker to acknowledge it. Persistence happens
+     * downstream in MessagePersistenceConsumer, so nothing else is waited for.
+     *
+     * @throws TimeoutException if the broker has not acknowledged the record within the publish
+     * timeout; the producer keeps trying, so the message may still be delivered
+     * @throws ExecutionException if the record could not be published
+     */
+    public ChatMessageDTO sendMessage(String chatRoomId, ChatMessageDTO chatMessageDTO)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        return publishMessage(chatRoomId, chatMessageDTO).get(publishTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stamps and publishes a message without waiting; the future completes once the broker
+     * has acknowledged the record.
+     */
+    public CompletableFuture<ChatMessageDTO> publishMessage(String chatRoomId, ChatMessageDTO chatMessageDTO) {
+        chatMessageDTO.setId(IdGenerator.newId());
         chatMessageDTO.setChatRoomDTO(new ChatRoomDTO(chatRoomId));
-        chatMessageDTO.setTimeSent(Instant.now());
-        messageProducer.sendMessage(chatRoomId, chatMessageDTO);
-        return messageRepository.save(chatMessageDTO);
+        // Millisecond precision matches the time_sent column, so history cursors compare exactly
+        chatMessageDTO.setTimeSent(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        return messageProducer.sendMessage(chatRoomId, chatMessageDTO)
+                .thenApply(result -> chatMessageDTO);
+    }
+
+    /**
+     * Publishes from a worker thread, for callers such as WebSocket handlers that must not block:
+     * the producer's send itself can block for up to max.block.ms while it waits for metadata or
+     * buffer space. Fails fast when the workers are backed up.
+     */
+    public CompletableFuture<ChatMessageDTO> publishMessageAsync(String chatRoomId, ChatMessageDTO chatMessageDTO) {
+        try {
+            return CompletableFuture.supplyAsync(() -> publishMessage(chatRoomId, chatMessageDTO), publishExecutor)
+                    .thenCompose(published -> published);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public List<ChatMessageSummary> getMessagesForChatRoom(String chatRoomId) {
+        return messageRepository.findAllByChatRoomId(chatRoomId);
+    }
+
+    /**
+     * Loads one page of a room's history. With no cursor the newest page is returned; "before"
+     * walks back towards older messages and "after" forward towards newer ones.
+     */
+    public MessagePage getMessagePage(String chatRoomId, String before, String after, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // One extra row tells us whether there is another page in the direction of travel
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<ChatMessageSummary> messages;
+        boolean hasOlder;
+        if (after != null) {
+            MessageCursor cursor = MessageCursor.decode(after);
+            messages = messageRepository.findAfterByChatRoomId(chatRoomId, cursor.getTimeSent(), cursor.getId(), page);
+            if (messages.size() > pageSize) {
+                messages = messages.subList(0, pageSize);
+            }
+            hasOlder = true;
+        } else if (before != null) {
+            MessageCursor cursor = MessageCursor.decode(before);
+            List<ChatMessageSummary> newestFirst =
+                    messageRepository.findBeforeByChatRoomId(chatRoomId, cursor.getTimeSent(), cursor.getId(), page);
+            hasOlder = newestFirst.size() > pageSize;
+            messages = oldestFirst(newestFirst, pageSize);
+        } else {
+            // The newest page is what every client asks for when opening a room, so try the cache first
+            List<ChatMessageSummary> cached = recentMessageCache.getLatest(chatRoomId, pageSize + 1);
+            if (cached != null) {
+                hasOlder = cached.size() > pageSize;
+                messages = cached.subList(Math.max(0, cached.size() - pageSize), cached.size());
+            } else {
+                recentMessageCache.track(chatRoomId);
+                List<ChatMessageSummary> newestFirst = messageRepository.findLatestByChatRoomId(chatRoomId, page);
+                hasOlder = newestFirst.size() > pageSize;
+                recentMessageCache.prime(chatRoomId, newestFirst, !hasOlder);
+                messages = oldestFirst(newestFirst, pageSize);
+            }
+        }
+
+        return toPage(messages, hasOlder, after);
+    }
+
+    private static List<ChatMessageSummary> oldestFirst(List<ChatMessageSummary> newestFirst, int pageSize) {
+        List<ChatMessageSummary> messages = new ArrayList<>(newestFirst.subList(0, Math.min(pageSize, newestFirst.size())));
+        Collections.reverse(messages);
+        return messages;
     }
 
-    public List<ChatMessageDTO> getMessagesForChatRoom(String chatRoomId) {
-        return messageRepository.findByChatRoomId(chatRoomId);
+    private MessagePage toPage(List<ChatMessageSummary> messages, boolean hasOlder, String after) {
+        if (messages.isEmpty()) {
+            return new MessagePage(messages, null, after);
+        }
+        String olderCursor = hasOlder ? MessageCursor.of(messages.get(0)).encode() : null;
+        String newerCursor = MessageCursor.of(messages.get(messages.size() - 1)).encode();
+        return new MessagePage(messages, olderCursor, newerCursor);
     }
 }
@@ -0,0 +1,373 @@
+package com.testapp.service;
+
+import com.testapp.domain.ChatMessageSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory tail of recent messages per chat room, fed from the Kafka stream and used
+ * to serve the newest history page without going to the database. Each room keeps at most
+ * {@code messages-per-room} messages and {@code max-bytes-per-room} estimated bytes; the least
+ * recently used rooms are evicted once {@code max-rooms} or {@code max-total-bytes} is exceeded.
+ * Each room has its own lock, so rooms streamed by different listener threads don't contend.
+ *
+ * <p>Persistence is write-behind, so a message the stream skipped before a room was tracked may
+ * be missing from the database page that primes it. The last such message per room is remembered
+ * for {@code persistence-lag-ms}, and a room only counts as primed once its page includes it.
+ */
+@Component
+public class RecentMessageCache {
+
+    // Rough per-message overhead of the summary, author and deque entry objects
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final Comparator<ChatMessageSummary> HISTORY_ORDER = Comparator
+            .comparing(ChatMessageSummary::getTimeSent, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ChatMessageSummary::getId);
+
+    @Value("${chat.message.cache.messages-per-room:200}")
+    private int messagesPerRoom;
+
+    @Value("${chat.message.cache.max-bytes-per-room:262144}")
+    private long maxBytesPerRoom;
+
+    @Value("${chat.message.cache.max-rooms:1000}")
+    private int maxRooms;
+
+    @Value("${chat.message.cache.max-total-bytes:67108864}")
+    private long maxTotalBytes;
+
+    // How long a skipped message may take to reach the database
+    @Value("${chat.message.cache.persistence-lag-ms:60000}")
+    private long persistenceLagMs;
+
+    @Value("${chat.message.cache.max-skipped-rooms:100000}")
+    private int maxSkippedRooms;
+
+    private final Map<String, RoomBuffer> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    // Orders room accesses for LRU eviction
+    private final AtomicLong accessClock = new AtomicLong();
+    // Only one thread evicts at a time; others carry on and leave it to that thread
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Newest message per untracked room that the stream skipped, and may not be persisted yet
+    private final Map<String, Skipped> skipped = new ConcurrentHashMap<>();
+    // Set when a skipped message couldn't be remembered; until it ages out no room can be primed
+    private volatile long skippedOverflowAt;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageCache(MeterRegistry meterRegistry) {
+        hits = meterRegistry.counter("chat.history.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("chat.history.cache.requests", "result", "miss");
+        Gauge.builder("chat.history.cache.rooms", this, RecentMessageCache::getRoomCount)
+                .description("Chat rooms held in the recent message cache")
+                .register(meterRegistry);
+        Gauge.builder("chat.history.cache.bytes", this, RecentMessageCache::getTotalBytes)
+                .description("Estimated heap used by the recent message cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds a message from the stream. Rooms are tracked from their first streamed message so
+     * that nothing delivered while a history read is priming the room can be missed.
+     */
+    public void append(ChatMessageSummary message) {
+        if (message.getChatRoomId() == null || message.getId() == null) {
+            return;
+        }
+        while (true) {
+            RoomBuffer buffer = acquire(message.getChatRoomId());
+            synchronized (buffer) {
+                if (buffer.evicted) {
+                    continue;
+                }
+                buffer.add(message);
+                buffer.trim();
+            }
+            break;
+        }
+        evictColdRooms();
+    }
+
+    /**
+     * Returns up to {@code count} of the room's newest messages, oldest first, or null when
+     * the cache can't vouch for them and the caller must read the database.
+     */
+    public List<ChatMessageSummary> getLatest(String chatRoomId, int count) {
+        RoomBuffer buffer = rooms.get(chatRoomId);
+        if (buffer == null) {
+            misses.increment();
+            return null;
+        }
+        List<ChatMessageSummary> latest;
+        synchronized (buffer) {
+            if (buffer.evicted || !buffer.primed || (buffer.messages.size() < count && !buffer.complete)) {
+                misses.increment();
+                return null;
+            }
+            buffer.touch();
+            latest = new ArrayList<>(Math.min(count, buffer.messages.size()));
+            Iterator<ChatMessageSummary> newestFirst = buffer.messages.descendingIterator();
+            while (newestFirst.hasNext() && latest.size() < count) {
+                latest.add(newestFirst.next());
+            }
+        }
+        hits.increment();
+        Collections.reverse(latest);
+        return latest;
+    }
+
+    /**
+     * Starts collecting streamed messages for a room ahead of a history read, so that a consumer
+     * filtering by room interest delivers them while the read is in flight.
+     */
+    public void track(String chatRoomId) {
+        acquire(chatRoomId);
+        evictColdRooms();
+    }
+
+    /**
+     * Seeds a room with its newest page from the database, merged with anything the stream
+     * has already delivered.
+     *
+     * @param newestFirst the page as read from the repository
+     * @param complete    whether the page reaches back to the room's first message
+     */
+    public void prime(String chatRoomId, List<ChatMessageSummary> newestFirst, boolean complete) {
+        while (true) {
+            RoomBuffer buffer = acquire(chatRoomId);
+            synchronized (buffer) {
+                if (buffer.evicted) {
+                    continue;
+                }
+                for (ChatMessageSummary message : newestFirst) {
+                    buffer.add(message);
+                }
+                // Otherwise stays unprimed, still following the stream, and the next read retries
+                if (isCaughtUp(chatRoomId, buffer)) {
+                    buffer.primed = true;
+                    buffer.complete = complete;
+                }
+                buffer.trim();
+            }
+            break;
+        }
+        evictColdRooms();
+    }
+
+    /**
+     * Returns the room's streamed messages with a sequence after {@code since}, in sequence
+     * order, or null when the cache can't prove it holds all of them and the client has to
+     * reload history instead.
+     */
+    public List<ChatMessageSummary> getSince(String chatRoomId, long since) {
+        RoomBuffer buffer = rooms.get(chatRoomId);
+        if (buffer == null) {
+            return null;
+        }
+        List<ChatMessageSummary> missed = new ArrayList<>();
+        synchronized (buffer) {
+            if (buffer.evicted || buffer.coveredFrom == null || since < buffer.coveredFrom) {
+                return null;
+            }
+            buffer.touch();
+            for (ChatMessageSummary message : buffer.messages) {
+                if (message.getSeq() != null && message.getSeq() > since) {
+                    missed.add(message);
+                }
+            }
+        }
+        missed.sort(Comparator.comparing(ChatMessageSummary::getSeq));
+        return missed;
+    }
+
+    /**
+     * Records a message the stream skipped because nothing was tracking its room.
+     *
+     * @param messageId the message's id, or null if the record didn't carry one
+     */
+    public void skipped(String chatRoomId, String messageId) {
+        long now = System.currentTimeMillis();
+        if (skipped.size() >= maxSkippedRooms && !skipped.containsKey(chatRoomId)) {
+            skipped.values().removeIf(entry -> entry.isExpired(now, persistenceLagMs));
+            if (skipped.size() >= maxSkippedRooms) {
+                skippedOverflowAt = now;
+                return;
+            }
+        }
+        skipped.put(chatRoomId, new Skipped(messageId, now));
+    }
+
+    public boolean contains(String chatRoomId) {
+        return rooms.containsKey(chatRoomId);
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Whether the room's newest skipped message, if any, has made it into the buffer. Called with
+     * the buffer's lock held, after the database page has been merged in.
+     */
+    private boolean isCaughtUp(String chatRoomId, RoomBuffer buffer) {
+        long now = System.currentTimeMillis();
+        if (now - skippedOverflowAt < persistenceLagMs) {
+            return false;
+        }
+        Skipped pending = skipped.get(chatRoomId);
+        if (pending == null) {
+            return true;
+        }
+        if (pending.isExpired(now, persistenceLagMs)
+                || (pending.messageId() != null && buffer.byId.containsKey(pending.messageId()))) {
+            skipped.remove(chatRoomId, pending);
+            return true;
+        }
+        return false;
+    }
+
+    private RoomBuffer acquire(String chatRoomId) {
+        RoomBuffer buffer = rooms.computeIfAbsent(chatRoomId, room -> new RoomBuffer());
+        buffer.touch();
+        return buffer;
+    }
+
+    private void evictColdRooms() {
+        if ((rooms.size() <= maxRooms && totalBytes.get() <= maxTotalBytes) || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (rooms.size() > maxRooms || totalBytes.get() > maxTotalBytes) {
+                // A linear scan is cheap next to a database read at the room counts this cache holds
+                Map.Entry<String, RoomBuffer> coldest = null;
+                for (Map.Entry<String, RoomBuffer> room : rooms.entrySet()) {
+                    if (coldest == null || room.getValue().lastAccess < coldest.getValue().lastAccess) {
+                        coldest = room;
+                    }
+                }
+                if (coldest == null) {
+                    return;
+                }
+                RoomBuffer buffer = coldest.getValue();
+                synchronized (buffer) {
+                    // Writers that still hold the buffer see the flag and start over with a fresh one
+                    buffer.evicted = true;
+                    totalBytes.addAndGet(-buffer.bytes);
+                }
+                rooms.remove(coldest.getKey(), buffer);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long estimateBytes(ChatMessageSummary message) {
+        long chars = length(message.getId()) + length(message.getChatRoomId()) + length(message.getMessage());
+        if (message.getUserId() != null) {
+            chars += length(message.getUserId().getId()) + length(message.getUserId().getUsername())
+                    + length(message.getUserId().getFirstName()) + length(message.getUserId().getLastName());
+        }
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private record Skipped(String messageId, long skippedAt) {
+
+        boolean isExpired(long now, long lagMs) {
+            return now - skippedAt >= lagMs;
+        }
+    }
+
+    /**
+     * One room's messages. Everything but {@code lastAccess} is guarded by the buffer's own monitor.
+     */
+    private final class RoomBuffer {
+
+        private final ArrayDeque<ChatMessageSummary> messages = new ArrayDeque<>();
+        private final Map<String, ChatMessageSummary> byId = new HashMap<>();
+        private long bytes;
+        private boolean primed;
+        private boolean complete;
+        private boolean evicted;
+        private volatile long lastAccess;
+        // Every streamed message with a sequence above this is held; null until one has been streamed
+        private Long coveredFrom;
+
+        void touch() {
+            lastAccess = accessClock.incrementAndGet();
+        }
+
+        void add(ChatMessageSummary message) {
+            if (message.getSeq() != null && coveredFrom == null) {
+                // Nothing for this room was streamed since the buffer was created, so coverage starts here
+                coveredFrom = message.getSeq() - 1;
+            }
+            ChatMessageSummary existing = byId.putIfAbsent(message.getId(), message);
+            if (existing != null) {
+                // A database row read ahead of its streamed copy still needs the sequence for resumes
+                if (existing.getSeq() == null && message.getSeq() != null) {
+                    existing.setSeq(message.getSeq());
+                }
+                return;
+            }
+            long size = estimateBytes(message);
+            bytes += size;
+            totalBytes.addAndGet(size);
+
+            // The stream is almost always in order, so walk back from the tail to find the slot
+            if (messages.isEmpty() || HISTORY_ORDER.compare(messages.peekLast(), message) <= 0) {
+                messages.addLast(message);
+                return;
+            }
+            List<ChatMessageSummary> newer = new ArrayList<>();
+            while (!messages.isEmpty() && HISTORY_ORDER.compare(messages.peekLast(), message) > 0) {
+                newer.add(messages.pollLast());
+            }
+            messages.addLast(message);
+            for (int i = newer.size() - 1; i >= 0; i--) {
+                messages.addLast(newer.get(i));
+            }
+        }
+
+        void trim() {
+            while (!messages.isEmpty() && (messages.size() > messagesPerRoom || bytes > maxBytesPerRoom)) {
+                ChatMessageSummary oldest = messages.pollFirst();
+                byId.remove(oldest.getId());
+                if (oldest.getSeq() != null && coveredFrom != null) {
+                    coveredFrom = Math.max(coveredFrom, oldest.getSeq());
+                }
+                long size = estimateBytes(oldest);
+                bytes -= size;
+                totalBytes.addAndGet(-size);
+                // Older messages now exist that the buffer no longer holds
+                complete = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.testapp.service;
+
+import com.testapp.domain.dto.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of user records by id and by username, so authenticated requests don't
+ * query the user table each time. Entries expire after {@code ttl-ms} and are invalidated by
+ * {@link UserService} whenever a user is written.
+ */
+@Component
+public class UserCache {
+
+    @Value("${security.user-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${security.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserCache(MeterRegistry meterRegistry) {
+        hits = meterRegistry.counter("user.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("user.cache.requests", "result", "miss");
+    }
+
+    public UserDTO getById(String id) {
+        return get(byId, id);
+    }
+
+    public UserDTO getByUsername(String username) {
+        return get(byUsername, username);
+    }
+
+    public void put(UserDTO user) {
+        if (user == null || user.getId() == null || user.getUsername() == null) {
+            return;
+        }
+        if (byId.size() >= maxEntries) {
+            evictExpired();
+        }
+        if (byId.size() >= maxEntries) {
+            return;
+        }
+        Entry entry = new Entry(user, System.currentTimeMillis() + ttlMs);
+        byId.put(user.getId(), entry);
+        byUsername.put(user.getUsername(), entry);
+    }
+
+    public void invalidate(UserDTO user) {
+        if (user.getId() != null) {
+            Entry entry = byId.remove(user.getId());
+            if (entry != null) {
+                byUsername.remove(entry.user.getUsername());
+            }
+        }
+        if (user.getUsername() != null) {
+            Entry entry = byUsername.remove(user.getUsername());
+            if (entry != null) {
+                byId.remove(entry.user.getId());
+            }
+        }
+    }
+
+    private UserDTO get(Map<String, Entry> index, String key) {
+        if (key == null) {
+            return null;
+        }
+        Entry entry = index.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            if (entry != null) {
+                invalidate(entry.user);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user;
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> entries = byId.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.isExpired(now)) {
+                entries.remove();
+                byUsername.remove(entry.user.getUsername(), entry);
+            }
+        }
+    }
+
+    private record Entry(UserDTO user, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.testapp.service;
 
+import com.testapp.domain.IdGenerator;
 import com.testapp.domain.dto.UserDTO;
 import com.testapp.exceptions.UserExistsException;
 import com.testapp.repository.UserRepository;
@@ -8,20 +9,30 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     public UserDTO getUser(String id) {
-        return userRepository.findById(id).orElse(null);
+        UserDTO user = userCache.getById(id);
+        if (user == null) {
+            user = userRepository.findById(id).orElse(null);
+            userCache.put(user);
+        }
+        return user;
     }
 
     public UserDTO getUserByUsername(String username) {
-        return userRepository.findByUsername(username).orElse(null);
+        UserDTO user = userCache.getByUsername(username);
+        if (user == null) {
+            user = userRepository.findByUsername(username).orElse(null);
+            userCache.put(user);
+        }
+        return user;
     }
 
     public List<UserDTO> getUsersInChatRoom(String chatRoomId) {
@@ -34,8 +45,10 @@ public class UserService {
             throw new UserExistsException("Username " + user.getUsername() + " is already taken.");
         }
 
-        user.setId(UUID.randomUUID().toString());
-        return userRepository.save(user);
+        user.setId(IdGenerator.newId());
+        UserDTO saved = userRepository.save(user);
+        userCache.invalidate(saved);
+        return saved;
     }
 
     public List<UserDTO> getAllUsers() {
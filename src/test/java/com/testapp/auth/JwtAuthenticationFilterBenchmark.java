@@ -0,0 +1,101 @@
+package com.testapp.auth;
+
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.service.JwtService;
+import com.testapp.service.UserService;
+import com.testapp.support.Benchmarks;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Per-request cost of authenticating a bearer token in {@link JwtAuthenticationFilter}, cycling
+ * through {@value #USERS} users' tokens. With the claims cache off ({@code maxCachedTokens} 0)
+ * every request verifies its token's signature once for each claim lookup, as before the cache
+ * was added; with it on, a token is verified once and later requests read its cached claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    @Param({"0", "10000"})
+    public int maxCachedTokens;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest[] requests;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", Base64.getEncoder().encodeToString(new byte[32]));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "maxCachedTokens", maxCachedTokens);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        filter = new JwtAuthenticationFilter(jwtService, mock(UserService.class), mock(HandlerExceptionResolver.class));
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+
+        requests = new MockHttpServletRequest[USERS];
+        for (int i = 0; i < USERS; i++) {
+            UserDTO user = UserDTO.builder()
+                    .id("user-" + i)
+                    .username("user" + i)
+                    .firstName("First")
+                    .lastName("Last")
+                    .email("user" + i + "@example.com")
+                    .build();
+            requests[i] = new MockHttpServletRequest("GET", "/user/me");
+            requests[i].addHeader("Authorization", "Bearer " + jwtService.generateToken(user));
+        }
+    }
+
+    @Benchmark
+    public Object authenticate() throws ServletException, IOException {
+        MockHttpServletRequest request = requests[next];
+        next = (next + 1) % USERS;
+        filter.doFilter(request, response, CHAIN);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void run() throws Exception {
+        Benchmarks.run(JwtAuthenticationFilterBenchmark.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.testapp.auth;
+
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.repository.UserRepository;
+import com.testapp.rest.UserController;
+import com.testapp.service.JwtService;
+import com.testapp.service.UserCache;
+import com.testapp.service.UserService;
+import com.testapp.support.Benchmarks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Requests/sec on {@code GET /user/me} through the JWT filter and the controller, against an H2
+ * user table: with the principal loaded from the database on every request, with it loaded
+ * through the user cache, and rebuilt from the token's claims. Each request starts from an empty
+ * persistence context, as a real one would. H2 is in-process, so the database modes would fall
+ * further behind against MySQL across a network.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userme;MODE=MySQL;NON_KEYWORDS=USER;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Tag(Benchmarks.TAG)
+class UserMeLoadBenchmark {
+
+    private static final int USERS = 200;
+    private static final long WARMUP_MS = 2_000;
+    private static final long MEASURE_MS = 5_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final JwtService jwtService = jwtService();
+
+    @Test
+    void run() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            UserDTO user = entityManager.persist(UserDTO.builder()
+                    .id("user-" + i)
+                    .username("user" + i)
+                    .password("secret")
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .build());
+            tokens.add(jwtService.generateToken(user));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Benchmarks.report(UserMeLoadBenchmark.class, List.of(
+                measure("database", false, 0, tokens),
+                measure("user-cache", false, 60_000, tokens),
+                measure("stateless", true, 60_000, tokens)));
+    }
+
+    private String measure(String mode, boolean statelessPrincipal, long userCacheTtlMs, List<String> tokens)
+            throws Exception {
+        UserCache userCache = new UserCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userCache, "ttlMs", userCacheTtlMs);
+        ReflectionTestUtils.setField(userCache, "maxEntries", 10_000);
+        UserService userService = new UserService(userRepository, userCache);
+        UserController controller = new UserController(userService);
+        JwtAuthenticationFilter filter =
+                new JwtAuthenticationFilter(jwtService, userService, mock(HandlerExceptionResolver.class));
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", statelessPrincipal);
+
+        FilterChain chain = (request, response) -> {
+            assertThat(controller.getMe().getStatusCode()).isEqualTo(HttpStatus.OK);
+            ((MockHttpServletResponse) response).setStatus(HttpStatus.OK.value());
+        };
+        run(filter, chain, tokens, WARMUP_MS);
+        long requests = run(filter, chain, tokens, MEASURE_MS);
+        return String.format("mode=%-10s requests/sec=%.0f", mode, requests * 1000.0 / MEASURE_MS);
+    }
+
+    private long run(JwtAuthenticationFilter filter, FilterChain chain, List<String> tokens, long durationMs)
+            throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        long requests = 0;
+        while (System.nanoTime() < deadline) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/me");
+            request.addHeader("Authorization", "Bearer " + tokens.get((int) (requests % tokens.size())));
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            SecurityContextHolder.clearContext();
+            entityManager.clear();
+            requests++;
+        }
+        return requests;
+    }
+
+    private static JwtService jwtService() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", Base64.getEncoder().encodeToString(new byte[32]));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "maxCachedTokens", 10_000);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+}
@@ -0,0 +1,93 @@
+package com.testapp.domain;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UUIDv7 ids are well-formed and increase in creation order, including once stored and sorted
+ * by H2 in MySQL mode, where history pages break ties between messages sent in the same
+ * millisecond by id.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ids;MODE=MySQL;NON_KEYWORDS=USER;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IdGeneratorTest {
+
+    private static final int MESSAGES = 500;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Test
+    void idsAreVersion7AndStrictlyIncreasing() {
+        String previous = "";
+        for (int i = 0; i < 100_000; i++) {
+            String id = IdGenerator.newId();
+            UUID uuid = UUID.fromString(id);
+
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void messagesSentInOneMillisecondLoadInCreationOrder() {
+        UserDTO user = entityManager.persist(UserDTO.builder()
+                .id(IdGenerator.newId())
+                .username("user1")
+                .password("secret")
+                .firstName("First")
+                .lastName("Last")
+                .email("user1@example.com")
+                .build());
+        ChatRoomDTO room = entityManager.persist(ChatRoomDTO.builder()
+                .id(IdGenerator.newId())
+                .displayName("Room")
+                .admin(user)
+                .build());
+        Instant sent = Instant.parse("2026-01-01T00:00:00Z");
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            ChatMessageDTO message = entityManager.persist(ChatMessageDTO.builder()
+                    .id(IdGenerator.newId())
+                    .userId(user)
+                    .chatRoomDTO(room)
+                    .message("Message " + i)
+                    .timeSent(sent)
+                    .build());
+            created.add(message.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> loaded = messageRepository.findAllByChatRoomId(room.getId()).stream()
+                .map(ChatMessageSummary::getId)
+                .toList();
+
+        assertThat(loaded).containsExactlyElementsOf(created);
+    }
+}
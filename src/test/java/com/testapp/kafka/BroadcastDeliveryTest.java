@@ -0,0 +1,137 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.server.HeartbeatMonitor;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.OutboundMetrics;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.ChatMessages;
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs three application instances against one embedded broker in BROADCAST mode, none of them
+ * given an instance id, and checks every subscribed socket on every instance gets each message
+ * exactly once.
+ */
+@EmbeddedKafka(partitions = BroadcastDeliveryTest.PARTITIONS,
+        topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC})
+class BroadcastDeliveryTest {
+
+    static final int PARTITIONS = 2;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int INSTANCES = 3;
+    private static final int SOCKETS_PER_INSTANCE = 2;
+    private static final int MESSAGES = 20;
+
+    private final List<AnnotationConfigApplicationContext> instances = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(AnnotationConfigApplicationContext::close);
+    }
+
+    @Test
+    void everySocketOnEveryInstanceGetsEachMessageOnce(EmbeddedKafkaBroker broker) {
+        List<StubSession> members = new ArrayList<>();
+        List<StubSession> others = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            // Only the port tells the instances apart, as it would for several on one host
+            AnnotationConfigApplicationContext instance = start(broker, 8081 + i);
+            SessionRegistry sessionRegistry = instance.getBean(SessionRegistry.class);
+            for (int j = 0; j < SOCKETS_PER_INSTANCE; j++) {
+                StubSession member = StubSession.recording("member-" + i + "-" + j);
+                sessionRegistry.join("room-1", member.session());
+                members.add(member);
+            }
+            StubSession other = StubSession.recording("other-" + i);
+            sessionRegistry.join("room-2", other.session());
+            others.add(other);
+        }
+        // Delivery groups start from the latest offset, so publish only once each owns its partitions
+        for (AnnotationConfigApplicationContext instance : instances) {
+            for (MessageListenerContainer container :
+                    instance.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers()) {
+                ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+            }
+        }
+
+        KProducer producer = instances.get(0).getBean(KProducer.class);
+        List<ChatMessageDTO> messages = new ArrayList<>();
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            ChatMessageDTO message = ChatMessages.message("room-1", "Hello " + i);
+            messages.add(message);
+            sends.add(producer.sendMessage("room-1", message));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        await().atMost(TIMEOUT).until(() -> members.stream().allMatch(member -> member.sent().size() >= MESSAGES));
+        // Leave time for a duplicate to show up
+        await().pollDelay(Duration.ofSeconds(1)).until(() -> true);
+
+        for (StubSession member : members) {
+            assertThat(member.sent()).as(member.getId()).hasSize(MESSAGES);
+            for (ChatMessageDTO message : messages) {
+                assertThat(member.sent()).as(member.getId())
+                        .filteredOn(frame -> frame.contains(message.getId()))
+                        .hasSize(1);
+            }
+        }
+        others.forEach(other -> assertThat(other.sent()).as(other.getId()).isEmpty());
+    }
+
+    private AnnotationConfigApplicationContext start(EmbeddedKafkaBroker broker, int port) {
+        AnnotationConfigApplicationContext instance = new AnnotationConfigApplicationContext();
+        instance.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.kafka.bootstrap-servers", broker.getBrokersAsString(),
+                "chat.kafka.topic.partitions", PARTITIONS,
+                "chat.kafka.delivery.mode", "BROADCAST",
+                "server.port", port)));
+        instance.register(KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+                ConsumerFailureMetrics.class, KProducer.class, KConsumer.class, MessageBroadcaster.class,
+                SessionRegistry.class, OutboundMetrics.class, HeartbeatMonitor.class, RecentMessageCache.class,
+                Metrics.class);
+        instances.add(instance);
+        instance.refresh();
+        return instance;
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
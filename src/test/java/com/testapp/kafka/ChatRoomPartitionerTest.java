@@ -0,0 +1,158 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.ChatMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publishes from several threads at once to a multi-partition topic and checks that each room's
+ * messages land on a single partition and are consumed in the order every thread sent them.
+ */
+@SpringJUnitConfig({KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+        ConsumerFailureMetrics.class, ChatRoomPartitionerTest.Metrics.class})
+@EmbeddedKafka(partitions = ChatRoomPartitionerTest.PARTITIONS,
+        topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "chat.kafka.topic.partitions=" + ChatRoomPartitionerTest.PARTITIONS,
+        "chat.kafka.delivery.mode=SHARED"
+})
+class ChatRoomPartitionerTest {
+
+    static final int PARTITIONS = 3;
+    private static final int PRODUCERS = 4;
+    private static final int ROOMS = 10;
+    private static final int MESSAGES_PER_ROOM = 50;
+
+    @Autowired
+    private KafkaTemplate<ChatMessageKey, ChatMessageDTO> kafkaChatMessageTemplate;
+
+    @Autowired
+    private ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> chatMessageContainerFactory;
+
+    @MockitoBean
+    private SessionRegistry sessionRegistry;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @Test
+    void concurrentProducersKeepEachRoomInOrder() throws Exception {
+        // Each producer thread numbers its messages per room: "<producer>:<n>"
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        List<Future<List<CompletableFuture<?>>>> sending = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            sending.add(producers.submit(() -> {
+                List<CompletableFuture<?>> sent = new ArrayList<>();
+                for (int n = 0; n < MESSAGES_PER_ROOM; n++) {
+                    for (int room = 0; room < ROOMS; room++) {
+                        ChatMessageDTO message = ChatMessages.message("room-" + room, producer + ":" + n);
+                        sent.add(kafkaChatMessageTemplate.send(CHAT_MESSAGE_TOPIC, ChatMessages.key(message), message));
+                    }
+                }
+                return sent;
+            }));
+        }
+        for (Future<List<CompletableFuture<?>>> future : sending) {
+            CompletableFuture.allOf(future.get().toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        }
+        producers.shutdown();
+
+        int total = PRODUCERS * ROOMS * MESSAGES_PER_ROOM;
+        Map<String, List<ConsumerRecord<ChatMessageKey, ChatMessageDTO>>> consumed = consumeAll(total);
+
+        assertThat(consumed).hasSize(ROOMS);
+        consumed.forEach((room, records) -> {
+            assertThat(records).hasSize(PRODUCERS * MESSAGES_PER_ROOM);
+            assertThat(records).extracting(ConsumerRecord::partition)
+                    .containsOnly(ChatRoomPartitioner.partitionFor(room, PARTITIONS));
+            assertThat(records).extracting(ConsumerRecord::offset).isSorted().doesNotHaveDuplicates();
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                String prefix = producer + ":";
+                List<Integer> sequence = records.stream()
+                        .map(record -> record.value().getMessage())
+                        .filter(text -> text.startsWith(prefix))
+                        .map(text -> Integer.parseInt(text.substring(prefix.length())))
+                        .toList();
+                assertThat(sequence).as("producer %d in %s", producer, room).isSorted().hasSize(MESSAGES_PER_ROOM);
+            }
+        });
+    }
+
+    // Reads the topic with one listener thread per partition and groups the records by room in arrival order
+    private Map<String, List<ConsumerRecord<ChatMessageKey, ChatMessageDTO>>> consumeAll(int total)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(total);
+        Map<String, List<ConsumerRecord<ChatMessageKey, ChatMessageDTO>>> consumed = new ConcurrentHashMap<>();
+
+        ConcurrentMessageListenerContainer<ChatMessageKey, ChatMessageDTO> container =
+                chatMessageContainerFactory.createContainer(CHAT_MESSAGE_TOPIC);
+        container.getContainerProperties().setGroupId("ordering-" + UUID.randomUUID());
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        container.getContainerProperties().setMessageListener((MessageListener<ChatMessageKey, ChatMessageDTO>) record -> {
+            consumed.computeIfAbsent(record.value().getChatRoomDTO().getId(),
+                    room -> Collections.synchronizedList(new ArrayList<>())).add(record);
+            done.countDown();
+        });
+
+        container.start();
+        try {
+            assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            container.stop();
+        }
+        return consumed;
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
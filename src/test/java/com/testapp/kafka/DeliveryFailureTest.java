@@ -0,0 +1,145 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.kafka.serialization.RoomFilteringDeserializer;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.ChatMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Puts records that can't be decoded or delivered ahead of valid ones on the delivery partition,
+ * and checks the valid records are delivered straight after, in order, with each failure counted
+ * by type.
+ */
+@SpringJUnitConfig({KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+        ConsumerFailureMetrics.class, KConsumer.class, KProducer.class, DeliveryFailureTest.Metrics.class})
+@EmbeddedKafka(partitions = 1, topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "chat.kafka.topic.partitions=1",
+        "chat.kafka.delivery.mode=SHARED",
+        "spring.kafka.group-id=delivery-failure-test"
+})
+class DeliveryFailureTest {
+
+    // The skip has no back-off, so valid records behind a poison one wait only for the next poll
+    private static final Duration NO_STALL = Duration.ofSeconds(5);
+    private static final int VALID = 5;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KProducer producer;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private MessageBroadcaster messageBroadcaster;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @MockitoBean
+    private SessionRegistry sessionRegistry;
+
+    @Test
+    void poisonRecordsAreSkippedWithoutHoldingUpTheRest() throws Exception {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> delivered.add(invocation.<ChatMessage>getArgument(0).getId()))
+                .when(messageBroadcaster).broadcast(any(ChatMessage.class));
+        ChatMessageDTO undeliverable = ChatMessages.message("room-1", "Undeliverable");
+        doThrow(new IllegalStateException("Cache unavailable")).when(recentMessageCache)
+                .append(argThat((ChatMessageSummary summary) -> undeliverable.getId().equals(summary.getId())));
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, 1);
+        }
+
+        sendUndecodable("room-1");
+        producer.sendMessage("room-1", undeliverable).get();
+        List<String> valid = new ArrayList<>();
+        for (int i = 0; i < VALID; i++) {
+            ChatMessageDTO message = ChatMessages.message("room-1", "Valid " + i);
+            producer.sendMessage("room-1", message).get();
+            valid.add(message.getId());
+        }
+
+        await().atMost(NO_STALL).until(() -> delivered.size() == VALID);
+        assertThat(delivered).containsExactlyElementsOf(valid);
+        assertThat(failures("deserialization")).isEqualTo(1);
+        assertThat(failures("processing")).isEqualTo(1);
+    }
+
+    private void sendUndecodable(String chatRoom) {
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(CHAT_MESSAGE_TOPIC, null,
+                "not a chat message".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RoomFilteringDeserializer.CHAT_ROOM_HEADER, chatRoom.getBytes(StandardCharsets.UTF_8));
+        try (Producer<byte[], byte[]> raw = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new ByteArraySerializer(), new ByteArraySerializer())
+                .createProducer()) {
+            raw.send(record);
+        }
+    }
+
+    private double failures(String type) {
+        return meterRegistry.get("chat.kafka.consumer.failures")
+                .tag("type", type)
+                .tag("outcome", ConsumerFailureMetrics.SKIPPED)
+                .counter()
+                .count();
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.Benchmarks;
+import com.testapp.support.ChatMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Delivery latency of quiet rooms that share a partition with one hot room, through the serial
+ * listener and through the keyed workers. One message is published every {@value #SEND_INTERVAL_MICROS}us
+ * and {@value #HOT_PERCENT}% of them go to the hot room, whose broadcasts take
+ * {@value #HOT_DELIVERY_MICROS}us each (a large room's fan-out) against {@value #QUIET_DELIVERY_MICROS}us
+ * for the rest: together they need more than one thread, while the hot room alone fits on one.
+ * <p>
+ * Serially, every quiet message queues behind the hot room's backlog. With keyed workers only the
+ * quiet rooms hashed to the hot room's worker do; the others are delivered as they arrive, which
+ * is what the p50 shows. Delivery is simulated with a wait, so it overlaps across workers even on
+ * a single core, but the listeners, workers and producer still share the machine's cores.
+ */
+@EmbeddedKafka(partitions = 1, topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC})
+@Tag(Benchmarks.TAG)
+class HotRoomLatencyBenchmark {
+
+    private static final int MESSAGES = 2_000;
+    private static final int QUIET_ROOMS = 20;
+    private static final int HOT_PERCENT = 75;
+    private static final long SEND_INTERVAL_MICROS = 1_000;
+    private static final long HOT_DELIVERY_MICROS = 1_000;
+    private static final long QUIET_DELIVERY_MICROS = 800;
+    private static final int WORKERS = 8;
+    private static final String HOT_ROOM = "room-hot";
+
+    @Test
+    void run(EmbeddedKafkaBroker broker) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(measure(broker, "serial", false));
+        lines.add(measure(broker, "keyed", true));
+        Benchmarks.report(HotRoomLatencyBenchmark.class, lines);
+    }
+
+    private String measure(EmbeddedKafkaBroker broker, String listener, boolean keyed) throws Exception {
+        SimulatedBroadcaster broadcaster = new SimulatedBroadcaster();
+        try (AnnotationConfigApplicationContext instance = start(broker, listener, keyed, broadcaster)) {
+            for (MessageListenerContainer container :
+                    instance.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers()) {
+                ContainerTestUtils.waitForAssignment(container, 1);
+            }
+            KProducer producer = instance.getBean(KProducer.class);
+            long next = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                String room = i % 100 < HOT_PERCENT ? HOT_ROOM : "room-quiet-" + i % QUIET_ROOMS;
+                producer.sendMessage(room, ChatMessages.message(room, "Message " + i));
+                next += TimeUnit.MICROSECONDS.toNanos(SEND_INTERVAL_MICROS);
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            assertThat(broadcaster.delivered.await(5, TimeUnit.MINUTES)).isTrue();
+        }
+        List<Long> quiet = sorted(broadcaster.quietMillis);
+        List<Long> hot = sorted(broadcaster.hotMillis);
+        return String.format("listener=%-6s quiet p50=%dms p90=%dms p99=%dms max=%dms hot p50=%dms max=%dms",
+                listener, percentile(quiet, 50), percentile(quiet, 90), percentile(quiet, 99),
+                quiet.get(quiet.size() - 1), percentile(hot, 50), hot.get(hot.size() - 1));
+    }
+
+    private static AnnotationConfigApplicationContext start(EmbeddedKafkaBroker broker, String listener, boolean keyed,
+                                                            MessageBroadcaster broadcaster) {
+        AnnotationConfigApplicationContext instance = new AnnotationConfigApplicationContext();
+        instance.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.kafka.bootstrap-servers", broker.getBrokersAsString(),
+                "spring.kafka.group-id", "hot-room-" + listener,
+                "chat.kafka.topic.partitions", 1,
+                "chat.kafka.delivery.mode", "SHARED",
+                "chat.kafka.consumer.keyed.enabled", keyed,
+                "chat.kafka.consumer.keyed.workers", WORKERS)));
+        instance.register(KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+                ConsumerFailureMetrics.class, KProducer.class, KConsumer.class, KKeyedConsumer.class);
+        instance.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        instance.registerBean(MessageBroadcaster.class, () -> broadcaster);
+        instance.registerBean(SessionRegistry.class, () -> mock(SessionRegistry.class));
+        instance.registerBean(RecentMessageCache.class, () -> mock(RecentMessageCache.class));
+        instance.refresh();
+        return instance;
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+    }
+
+    // Spends the simulated fan-out time and records how long each message took from being sent
+    private static final class SimulatedBroadcaster extends MessageBroadcaster {
+
+        private final CountDownLatch delivered = new CountDownLatch(MESSAGES);
+        private final List<Long> quietMillis = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> hotMillis = Collections.synchronizedList(new ArrayList<>());
+
+        SimulatedBroadcaster() {
+            super(null);
+        }
+
+        @Override
+        public void broadcast(ChatMessage message) {
+            boolean hot = HOT_ROOM.equals(message.getChatRoomName());
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(hot ? HOT_DELIVERY_MICROS : QUIET_DELIVERY_MICROS));
+            long millis = Duration.between(message.getTimeSent(), Instant.now()).toMillis();
+            (hot ? hotMillis : quietMillis).add(millis);
+            delivered.countDown();
+        }
+    }
+}
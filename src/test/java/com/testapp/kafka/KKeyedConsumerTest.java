@@ -0,0 +1,147 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.ChatMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Holds one room's record on its worker while later records for another room finish on a second
+ * worker, and checks the committed offset waits at the held record until it completes.
+ */
+@SpringJUnitConfig({KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+        ConsumerFailureMetrics.class, KKeyedConsumer.class, KProducer.class, KKeyedConsumerTest.Metrics.class})
+@EmbeddedKafka(partitions = 1, topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "chat.kafka.topic.partitions=1",
+        "chat.kafka.delivery.mode=SHARED",
+        "chat.kafka.consumer.keyed.enabled=true",
+        "chat.kafka.consumer.keyed.workers=" + KKeyedConsumerTest.WORKERS,
+        "spring.kafka.group-id=" + KKeyedConsumerTest.GROUP
+})
+class KKeyedConsumerTest {
+
+    static final int WORKERS = 2;
+    static final String GROUP = "keyed-test";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String HELD_ROOM = "room-held";
+    private static final int LATER_MESSAGES = 20;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KProducer producer;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @MockitoBean
+    private MessageBroadcaster messageBroadcaster;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @MockitoBean
+    private SessionRegistry sessionRegistry;
+
+    @Test
+    void commitNeverPassesARecordStillInFlight() throws Exception {
+        String otherRoom = roomOnOtherWorker();
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            if (HELD_ROOM.equals(message.getChatRoomName())) {
+                release.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            delivered.add(message.getId());
+            return null;
+        }).when(messageBroadcaster).broadcast(any(ChatMessage.class));
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, 1);
+        }
+
+        ChatMessageDTO held = ChatMessages.message(HELD_ROOM, "Held");
+        long heldOffset = producer.sendMessage(HELD_ROOM, held).get().getRecordMetadata().offset();
+        for (int i = 0; i < LATER_MESSAGES; i++) {
+            producer.sendMessage(otherRoom, ChatMessages.message(otherRoom, "Later " + i)).get();
+        }
+
+        // Every later record completes on the other worker, out of order with the held one
+        await().atMost(TIMEOUT).until(() -> delivered.size() == LATER_MESSAGES);
+        assertThat(delivered).doesNotContain(held.getId());
+        // Give the container several polls in which it could commit past the held record
+        long until = System.currentTimeMillis() + 2_000;
+        while (System.currentTimeMillis() < until) {
+            OffsetAndMetadata committed = committed();
+            assertThat(committed == null ? 0 : committed.offset()).isLessThanOrEqualTo(heldOffset);
+            Thread.sleep(100);
+        }
+
+        release.countDown();
+        long end = heldOffset + 1 + LATER_MESSAGES;
+        await().atMost(TIMEOUT).until(() -> committed() != null && committed().offset() == end);
+        assertThat(delivered).contains(held.getId());
+    }
+
+    private OffsetAndMetadata committed() throws Exception {
+        return KafkaTestUtils.getCurrentOffset(broker.getBrokersAsString(), GROUP, CHAT_MESSAGE_TOPIC, 0);
+    }
+
+    private static String roomOnOtherWorker() {
+        int heldWorker = Math.floorMod(HELD_ROOM.hashCode(), WORKERS);
+        for (int i = 0; ; i++) {
+            String room = "room-" + i;
+            if (Math.floorMod(room.hashCode(), WORKERS) != heldWorker) {
+                return room;
+            }
+        }
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.Benchmarks;
+import com.testapp.support.ChatMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delivery throughput of the chat message listener at 1 to {@value #PARTITIONS} consumer threads.
+ * Every run reads the same {@value #RECORDS} records from the start of the topic in a group of its
+ * own, through the container factory the application uses, and checks each room's records still
+ * arrive in offset order.
+ * <p>
+ * Delivery is simulated as a {@value #DELIVERY_MICROS}us wait per record, standing in for the time
+ * a record spends in encoding and socket hand-off. A wait scales with threads even on a single
+ * core; CPU-bound delivery only scales as far as the machine has cores. Partitions are split
+ * between threads whole, so a run is only as fast as its busiest thread: with 5 partitions, 2 and
+ * 4 threads top out at 5/3 and 5/2 of a single thread.
+ */
+@SpringJUnitConfig({KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+        ConsumerFailureMetrics.class, ListenerConcurrencyBenchmark.Metrics.class})
+@EmbeddedKafka(partitions = ListenerConcurrencyBenchmark.PARTITIONS,
+        topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "chat.kafka.topic.partitions=" + ListenerConcurrencyBenchmark.PARTITIONS,
+        "chat.kafka.delivery.mode=SHARED"
+})
+@Tag(Benchmarks.TAG)
+class ListenerConcurrencyBenchmark {
+
+    static final int PARTITIONS = 5;
+    private static final int RECORDS = 10_000;
+    private static final int ROOMS = 50;
+    private static final long DELIVERY_MICROS = 200;
+
+    @Autowired
+    private KafkaTemplate<ChatMessageKey, ChatMessageDTO> kafkaChatMessageTemplate;
+
+    @Autowired
+    private ConcurrentKafkaListenerContainerFactory<ChatMessageKey, ChatMessageDTO> chatMessageContainerFactory;
+
+    @MockitoBean
+    private SessionRegistry sessionRegistry;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @Test
+    void run() throws Exception {
+        List<CompletableFuture<?>> sent = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            ChatMessageDTO message = ChatMessages.message("room-" + i % ROOMS, "Message " + i);
+            sent.add(kafkaChatMessageTemplate.send(CHAT_MESSAGE_TOPIC, ChatMessages.key(message), message));
+        }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+
+        List<String> lines = new ArrayList<>();
+        double baseline = 0;
+        for (int concurrency = 1; concurrency <= PARTITIONS; concurrency++) {
+            double perSecond = consumeAll(concurrency);
+            if (concurrency == 1) {
+                baseline = perSecond;
+            }
+            lines.add(String.format("concurrency=%d records=%d msgs/sec=%.0f speedup=%.2f",
+                    concurrency, RECORDS, perSecond, perSecond / baseline));
+        }
+        Benchmarks.report(ListenerConcurrencyBenchmark.class, lines);
+    }
+
+    // Reads the whole topic with the given number of listener threads and returns records per second
+    private double consumeAll(int concurrency) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(RECORDS);
+        Map<String, Long> lastOffsets = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicLong started = new AtomicLong();
+
+        ConcurrentMessageListenerContainer<ChatMessageKey, ChatMessageDTO> container =
+                chatMessageContainerFactory.createContainer(CHAT_MESSAGE_TOPIC);
+        container.setConcurrency(concurrency);
+        container.getContainerProperties().setGroupId("concurrency-" + concurrency + "-" + UUID.randomUUID());
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        container.getContainerProperties().setMessageListener((MessageListener<ChatMessageKey, ChatMessageDTO>) record -> {
+            started.compareAndSet(0, System.nanoTime());
+            Long previous = lastOffsets.put(record.value().getChatRoomDTO().getId(), record.offset());
+            if (previous != null && previous >= record.offset()) {
+                outOfOrder.incrementAndGet();
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(DELIVERY_MICROS));
+            done.countDown();
+        });
+
+        container.start();
+        try {
+            assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        } finally {
+            container.stop();
+        }
+        assertThat(outOfOrder).hasValue(0);
+        double seconds = (System.nanoTime() - started.get()) / 1e9;
+        return RECORDS / seconds;
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
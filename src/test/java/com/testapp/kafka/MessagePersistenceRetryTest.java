@@ -0,0 +1,215 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaConsumerConfig;
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.repository.ChatMessageBatchRepository;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.RecentMessageCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs the persistence listeners against an embedded broker: failed writes move to the retry
+ * topic and are written from there, and records that can't be decoded or keep failing end up on
+ * the dead-letter topic.
+ */
+@SpringJUnitConfig({KafkaTopicConfig.class, KafkaProducerConfig.class, KafkaConsumerConfig.class,
+        MessagePersistenceConsumer.class, ConsumerFailureMetrics.class, MessagePersistenceRetryTest.Metrics.class})
+@EmbeddedKafka(partitions = 1, topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = {
+        "chat.kafka.topic.partitions=1",
+        "chat.kafka.delivery.instance-id=test",
+        "chat.kafka.persistence.inline-attempts=2",
+        "chat.kafka.persistence.retry.initial-interval-ms=100",
+        "chat.kafka.persistence.retry.max-elapsed-ms=300"
+})
+class MessagePersistenceRetryTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KafkaTemplate<ChatMessageKey, ChatMessageDTO> kafkaChatMessageTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @MockitoBean
+    private ChatMessageBatchRepository batchRepository;
+
+    @MockitoBean
+    private SessionRegistry sessionRegistry;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    // Ids of messages the repository accepted, and of messages it should reject for a while
+    private final Set<String> written = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+
+    private Consumer<byte[], byte[]> retryConsumer;
+    private Consumer<byte[], byte[]> deadLetterConsumer;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            List<ChatMessageDTO> messages = invocation.getArgument(0);
+            for (ChatMessageDTO message : messages) {
+                AtomicInteger left = failuresLeft.get(message.getId());
+                if (left != null && left.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Database unavailable");
+                }
+            }
+            messages.forEach(message -> written.add(message.getId()));
+            return null;
+        }).when(batchRepository).saveAll(anyList());
+
+        retryConsumer = consumer(CHAT_MESSAGE_RETRY_TOPIC);
+        deadLetterConsumer = consumer(CHAT_MESSAGE_DLT_TOPIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryConsumer.close();
+        deadLetterConsumer.close();
+    }
+
+    @Test
+    void retryListenerHasItsOwnGroup() {
+        Set<String> groups = listenerRegistry.getListenerContainers().stream()
+                .map(MessageListenerContainer::getGroupId)
+                .collect(Collectors.toSet());
+
+        assertThat(groups).containsExactlyInAnyOrder("chat-persistence", "chat-persistence-retry");
+    }
+
+    @Test
+    void undecodableRecordIsDeadLettered() {
+        byte[] poison = ("not a chat message " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        try (Producer<byte[], byte[]> producer = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new ByteArraySerializer(), new ByteArraySerializer())
+                .createProducer()) {
+            producer.send(new ProducerRecord<>(CHAT_MESSAGE_TOPIC, null, poison));
+        }
+
+        ConsumerRecord<byte[], byte[]> deadLettered =
+                awaitRecord(deadLetterConsumer, new String(poison, StandardCharsets.UTF_8));
+
+        // Forwarded as its original bytes
+        assertThat(deadLettered.value()).isEqualTo(poison);
+        assertThat(written).isEmpty();
+    }
+
+    @Test
+    void transientFailureIsWrittenFromRetryTopic() {
+        ChatMessageDTO message = send(2);
+
+        awaitRecord(retryConsumer, message.getId());
+        await().atMost(TIMEOUT).until(() -> written.contains(message.getId()));
+    }
+
+    @Test
+    void persistentFailureIsDeadLetteredFromRetryTopic() {
+        ChatMessageDTO message = send(Integer.MAX_VALUE);
+
+        awaitRecord(retryConsumer, message.getId());
+        awaitRecord(deadLetterConsumer, message.getId());
+        assertThat(written).doesNotContain(message.getId());
+    }
+
+    // Publishes a new message whose writes fail the given number of times
+    private ChatMessageDTO send(int failures) {
+        UserDTO user = UserDTO.builder().id("user-1").username("user1").build();
+        ChatMessageDTO message = ChatMessageDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(user)
+                .chatRoomDTO(ChatRoomDTO.builder().id("room-1").build())
+                .message("Hello")
+                .timeSent(Instant.now())
+                .build();
+        failuresLeft.put(message.getId(), new AtomicInteger(failures));
+        kafkaChatMessageTemplate.send(CHAT_MESSAGE_TOPIC,
+                new ChatMessageKey("room-1", user.getId(), message.getId()), message).join();
+        return message;
+    }
+
+    private Consumer<byte[], byte[]> consumer(String topic) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("test-" + UUID.randomUUID(), "false", broker);
+        Consumer<byte[], byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new ByteArrayDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, topic);
+        return consumer;
+    }
+
+    // Polls until a record whose value contains the marker arrives
+    private static ConsumerRecord<byte[], byte[]> awaitRecord(Consumer<byte[], byte[]> consumer, String marker) {
+        Instant deadline = Instant.now().plus(TIMEOUT);
+        while (Instant.now().isBefore(deadline)) {
+            for (ConsumerRecord<byte[], byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                if (record.value() != null && new String(record.value(), StandardCharsets.UTF_8).contains(marker)) {
+                    return record;
+                }
+            }
+        }
+        throw new AssertionError("No record containing " + marker + " within " + TIMEOUT);
+    }
+
+    @Configuration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.testapp.kafka;
+
+import com.testapp.config.KafkaProducerConfig;
+import com.testapp.config.KafkaProducerProperties;
+import com.testapp.config.KafkaTopicConfig;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.support.Benchmarks;
+import com.testapp.support.ChatMessages;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+
+/**
+ * Publishing throughput of each producer profile against an embedded broker: msgs/sec, and the
+ * bytes the producer sent to the broker for them. Each profile publishes the same
+ * {@value #RECORDS} messages across {@value #ROOMS} rooms as fast as the producer accepts them.
+ * The broker shares the machine with the producer, so compare profiles within one run.
+ */
+@SpringJUnitConfig(KafkaTopicConfig.class)
+@EmbeddedKafka(partitions = ProducerProfileBenchmark.PARTITIONS, topics = CHAT_MESSAGE_TOPIC,
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@TestPropertySource(properties = "chat.kafka.topic.partitions=" + ProducerProfileBenchmark.PARTITIONS)
+@Tag(Benchmarks.TAG)
+class ProducerProfileBenchmark {
+
+    static final int PARTITIONS = 5;
+    private static final int RECORDS = 50_000;
+    private static final int ROOMS = 50;
+
+    @Autowired
+    private KafkaTopicConfig kafkaTopicConfig;
+
+    @Test
+    void run() throws Exception {
+        List<ChatMessageDTO> messages = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            messages.add(ChatMessages.message("room-" + i % ROOMS, "Hello, this is message " + i + " of the run."));
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (KafkaProducerProperties.Profile profile : KafkaProducerProperties.Profile.values()) {
+            // A warm-up pass, then the measured one
+            publish(profile, messages.subList(0, RECORDS / 10));
+            lines.add(publish(profile, messages));
+        }
+        Benchmarks.report(ProducerProfileBenchmark.class, lines);
+    }
+
+    private String publish(KafkaProducerProperties.Profile profile, List<ChatMessageDTO> messages) throws Exception {
+        KafkaProducerProperties properties = new KafkaProducerProperties();
+        properties.setProfile(profile);
+        ProducerFactory<ChatMessageKey, ChatMessageDTO> factory =
+                new KafkaProducerConfig(kafkaTopicConfig, properties).producerChatMessageFactory();
+
+        try (Producer<ChatMessageKey, ChatMessageDTO> producer = factory.createProducer()) {
+            long started = System.nanoTime();
+            List<Future<?>> sent = new ArrayList<>(messages.size());
+            for (ChatMessageDTO message : messages) {
+                sent.add(producer.send(new ProducerRecord<>(CHAT_MESSAGE_TOPIC, ChatMessages.key(message), message)));
+            }
+            producer.flush();
+            for (Future<?> future : sent) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Map<MetricName, ? extends Metric> metrics = producer.metrics();
+            double bytes = metric(metrics, "outgoing-byte-total");
+            return String.format("profile=%s records=%d msgs/sec=%.0f bytes=%.0f bytes/record=%.1f "
+                            + "batch-size-avg=%.0f compression-rate-avg=%.2f",
+                    profile, messages.size(), messages.size() / seconds, bytes, bytes / messages.size(),
+                    metric(metrics, "batch-size-avg"), metric(metrics, "compression-rate-avg"));
+        }
+    }
+
+    private static double metric(Map<MetricName, ? extends Metric> metrics, String name) {
+        return metrics.entrySet().stream()
+                .filter(entry -> entry.getKey().name().equals(name) && entry.getKey().group().equals("producer-metrics"))
+                .mapToDouble(entry -> ((Number) entry.getValue().metricValue()).doubleValue())
+                .findFirst()
+                .orElse(Double.NaN);
+    }
+}
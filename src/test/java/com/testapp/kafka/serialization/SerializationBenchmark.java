@@ -0,0 +1,108 @@
+package com.testapp.kafka.serialization;
+
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.support.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+
+/**
+ * Cost of writing and reading one chat record in the JSON and binary formats. The record sizes,
+ * which JMH doesn't measure, are written next to the scores in SerializationBenchmark.txt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final ChatMessageDTO message = message();
+    private final ChatMessageKey key =
+            new ChatMessageKey(message.getChatRoomDTO().getId(), message.getUserId().getId(), message.getId());
+
+    private final JsonSerializer<ChatMessageDTO> jsonSerializer = new JsonSerializer<>();
+    private final JsonDeserializer<ChatMessageDTO> jsonDeserializer = new JsonDeserializer<>(ChatMessageDTO.class);
+    private final JsonSerializer<ChatMessageKey> jsonKeySerializer = new JsonSerializer<>();
+    private final ChatMessageSerializer binarySerializer = new ChatMessageSerializer();
+    private final ChatMessageDeserializer binaryDeserializer = new ChatMessageDeserializer();
+    private final ChatMessageKeySerializer binaryKeySerializer = new ChatMessageKeySerializer();
+
+    private final byte[] json = jsonSerializer.serialize(CHAT_MESSAGE_TOPIC, message);
+    private final byte[] binary = binarySerializer.serialize(CHAT_MESSAGE_TOPIC, message);
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(CHAT_MESSAGE_TOPIC, message);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(CHAT_MESSAGE_TOPIC, message);
+    }
+
+    @Benchmark
+    public ChatMessageDTO jsonDeserialize() {
+        return jsonDeserializer.deserialize(CHAT_MESSAGE_TOPIC, json);
+    }
+
+    @Benchmark
+    public ChatMessageDTO binaryDeserialize() {
+        return binaryDeserializer.deserialize(CHAT_MESSAGE_TOPIC, binary);
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void run() throws Exception {
+        Benchmarks.run(SerializationBenchmark.class);
+        Benchmarks.report(SerializationBenchmark.class, List.of(
+                String.format("json   key=%d value=%d bytes/record",
+                        jsonKeySerializer.serialize(CHAT_MESSAGE_TOPIC, key).length, json.length),
+                String.format("binary key=%d value=%d bytes/record",
+                        binaryKeySerializer.serialize(CHAT_MESSAGE_TOPIC, key).length, binary.length)));
+    }
+
+    // A message as the REST and socket paths publish it, with the full user and chat room
+    private static ChatMessageDTO message() {
+        UserDTO user = UserDTO.builder()
+                .id("0190f5c2-6c1e-7a31-9a4e-6f1f2b3c4d5e")
+                .username("jane.doe")
+                .firstName("Jane")
+                .lastName("Doe")
+                .email("jane.doe@example.com")
+                .build();
+        return ChatMessageDTO.builder()
+                .id("0190f5c2-7d2f-7b42-8b5f-7a2a3c4d5e6f")
+                .userId(user)
+                .chatRoomDTO(ChatRoomDTO.builder()
+                        .id("0190f5c2-5b0d-7920-8a3d-5e0e1a2b3c4d")
+                        .displayName("Engineering")
+                        .description("Day to day engineering discussion")
+                        .admin(user)
+                        .participantCount(42)
+                        .build())
+                .message("Hello, this is a chat message of a typical length for the room.")
+                .timeSent(Instant.parse("2026-01-01T12:00:00Z"))
+                .build();
+    }
+}
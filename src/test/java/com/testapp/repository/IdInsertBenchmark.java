@@ -0,0 +1,101 @@
+package com.testapp.repository;
+
+import com.testapp.domain.IdGenerator;
+import com.testapp.support.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/sec inserted into a chat_message table already holding {@link #PRELOADED} rows, keyed by
+ * random UUIDv4 and by time-ordered UUIDv7 ids. The database is in-memory H2 in MySQL mode, whose
+ * B-tree shows the same append-versus-scatter effect as InnoDB's clustered index without the
+ * page I/O, so the gap on MySQL is at least this large.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class IdInsertBenchmark {
+
+    private static final int PRELOADED = 200_000;
+    private static final int BATCH = 100;
+
+    @Param({"v4", "v7"})
+    public String ids;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private final Timestamp sent = Timestamp.from(Instant.parse("2026-01-01T00:00:00Z"));
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:ids-" + ids + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table chat_message (id varchar(36) primary key, message varchar(8000), "
+                    + "user_id varchar(36), chat_room_id varchar(36), time_sent timestamp(3))");
+        }
+        insert = connection.prepareStatement(
+                "insert into chat_message (id, message, user_id, chat_room_id, time_sent) values (?, ?, ?, ?, ?)");
+        for (int i = 0; i < PRELOADED; i += BATCH) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        insert.close();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insert() throws SQLException {
+        insertBatch();
+    }
+
+    // One batch per statement execution, as ChatMessageBatchRepository writes them
+    private void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            insert.setString(1, "v7".equals(ids) ? IdGenerator.newId() : UUID.randomUUID().toString());
+            insert.setString(2, "Hello");
+            insert.setString(3, "user-1");
+            insert.setString(4, "room-1");
+            insert.setTimestamp(5, sent);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void run() throws Exception {
+        Benchmarks.run(IdInsertBenchmark.class);
+    }
+}
@@ -0,0 +1,192 @@
+package com.testapp.repository;
+
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.ChatRoomDetails;
+import com.testapp.domain.RoomManagement;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards against N+1 queries: each read path behind an endpoint must load everything its
+ * response touches in a single statement, however many rows and distinct authors it returns.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statements;MODE=MySQL;NON_KEYWORDS=USER;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StatementsPerRequestTest {
+
+    private static final int USERS = 5;
+    private static final int MESSAGES = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private RoomManagementRepository roomManagementRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+    private List<UserDTO> users;
+    private ChatRoomDTO room;
+
+    @BeforeEach
+    void setUp() {
+        users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(entityManager.persist(UserDTO.builder()
+                    .id("user-" + i)
+                    .username("user" + i)
+                    .password("secret")
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .build()));
+        }
+        List<ChatRoomDTO> rooms = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rooms.add(entityManager.persist(ChatRoomDTO.builder()
+                    .id("room-" + i)
+                    .displayName("Room " + i)
+                    .description("Room number " + i)
+                    .admin(users.get(i))
+                    .participantCount(USERS)
+                    .build()));
+        }
+        room = rooms.get(0);
+        for (ChatRoomDTO chatRoom : rooms) {
+            for (UserDTO user : users) {
+                entityManager.persist(new RoomManagement(
+                        new RoomManagement.RoomManagementId(user.getId(), chatRoom.getId()), user, chatRoom, false));
+            }
+        }
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < MESSAGES; i++) {
+            entityManager.persist(ChatMessageDTO.builder()
+                    .id(String.format("message-%03d", i))
+                    .userId(users.get(i % USERS))
+                    .chatRoomDTO(room)
+                    .message("Message " + i)
+                    .timeSent(start.plusSeconds(i))
+                    .build());
+        }
+        entityManager.flush();
+        // Start every test from an empty persistence context, as a request would
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void messageHistoryPageIsOneStatement() {
+        List<ChatMessageSummary> page = messageRepository.findLatestByChatRoomId(room.getId(), PageRequest.of(0, 51));
+        page.forEach(message -> assertThat(message.getUserId().getUsername()).isNotNull());
+
+        assertThat(page).hasSize(MESSAGES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void allRoomMessagesAreOneStatement() {
+        List<ChatMessageSummary> messages = messageRepository.findAllByChatRoomId(room.getId());
+        messages.forEach(message -> assertThat(message.getUserId().getFirstName()).isNotNull());
+
+        assertThat(messages).hasSize(MESSAGES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50})
+    void myRoomsWithAdminsAreOneStatement(int roomCount) {
+        UserDTO member = entityManager.persist(UserDTO.builder()
+                .id("member")
+                .username("member")
+                .password("secret")
+                .firstName("Member")
+                .lastName("Last")
+                .email("member@example.com")
+                .build());
+        for (int i = 0; i < roomCount; i++) {
+            // Rotate admins so the rooms reference several distinct users
+            ChatRoomDTO chatRoom = entityManager.persist(ChatRoomDTO.builder()
+                    .id("member-room-" + i)
+                    .displayName("Member room " + i)
+                    .description("Member room number " + i)
+                    .admin(users.get(i % USERS))
+                    .participantCount(1)
+                    .build());
+            entityManager.persist(new RoomManagement(
+                    new RoomManagement.RoomManagementId(member.getId(), chatRoom.getId()), member, chatRoom, false));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<ChatRoomDetails> rooms = chatRoomRepository.findDetailsByUserId(member.getId());
+        rooms.forEach(details -> assertThat(details.getAdmin().getUsername()).isNotNull());
+
+        assertThat(rooms).hasSize(roomCount);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void roomParticipantsAreOneStatement() {
+        List<RoomManagement> participants = roomManagementRepository.findByChatRoomId(room.getId());
+        participants.forEach(participant -> assertThat(participant.getUser().getUsername()).isNotNull());
+
+        assertThat(participants).hasSize(USERS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void roomUsersAreOneStatement() {
+        List<UserDTO> roomUsers = userRepository.findByChatRoomId(room.getId());
+
+        assertThat(roomUsers).hasSize(USERS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void roomWithAdminIsOneStatement() {
+        ChatRoomDTO loaded = chatRoomRepository.findWithAdminById(room.getId()).orElseThrow();
+
+        assertThat(loaded.getAdmin().getUsername()).isEqualTo("user0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.testapp.rest;
+
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.service.MessageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageControllerTest {
+
+    private final MessageService messageService = mock(MessageService.class);
+    private final MessageController controller = new MessageController();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "messageService", messageService);
+        UserDTO user = UserDTO.builder().id("user-1").username("user1").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void acknowledgedSendReturnsMessage() throws Exception {
+        ChatMessageDTO sent = ChatMessageDTO.builder().id("message-1").message("Hello").build();
+        when(messageService.sendMessage(eq("room-1"), any())).thenReturn(sent);
+
+        ResponseEntity<?> response = controller.sendMessage("room-1", new ChatMessageDTO());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isSameAs(sent);
+    }
+
+    @Test
+    void brokerTimeoutIsServiceUnavailable() throws Exception {
+        when(messageService.sendMessage(eq("room-1"), any())).thenThrow(new TimeoutException());
+
+        ResponseEntity<?> response = controller.sendMessage("room-1", new ChatMessageDTO());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void failedPublishIsBadGateway() throws Exception {
+        when(messageService.sendMessage(eq("room-1"), any()))
+                .thenThrow(new ExecutionException(new IllegalStateException("Broker rejected the record")));
+
+        ResponseEntity<?> response = controller.sendMessage("room-1", new ChatMessageDTO());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+}
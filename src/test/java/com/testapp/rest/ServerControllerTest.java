@@ -0,0 +1,74 @@
+package com.testapp.rest;
+
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.server.HeartbeatMonitor;
+import com.testapp.server.JwtHandshakeConfigurator;
+import com.testapp.server.MessageBroadcaster;
+import com.testapp.server.OverflowPolicy;
+import com.testapp.server.SessionRegistries;
+import com.testapp.server.SessionRegistry;
+import com.testapp.service.ChatRoomService;
+import com.testapp.service.RecentMessageCache;
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServerControllerTest {
+
+    private static final String ROOM = "room-1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChatRoomService chatRoomService = mock(ChatRoomService.class);
+    private HeartbeatMonitor heartbeatMonitor;
+    private SessionRegistry sessionRegistry;
+
+    @BeforeEach
+    void setUp() {
+        heartbeatMonitor = SessionRegistries.heartbeat(meterRegistry, 60_000, 120_000, 1000, 64);
+        sessionRegistry = SessionRegistries.create(meterRegistry, heartbeatMonitor, 16, OverflowPolicy.DROP_OLDEST);
+        ServerController controller = new ServerController();
+        controller.setSessionRegistry(sessionRegistry);
+        controller.setMessageBroadcaster(new MessageBroadcaster(sessionRegistry));
+        controller.setChatRoomService(chatRoomService);
+        controller.setRecentMessageCache(mock(RecentMessageCache.class));
+        controller.setResumeSupported(true);
+        when(chatRoomService.isParticipant(ROOM, "user-1")).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SessionRegistries.stop(sessionRegistry, heartbeatMonitor);
+    }
+
+    @Test
+    void unparseableCursorResyncsAndStillAnnouncesTheConnection() throws Exception {
+        StubSession client = connecting("session-1", "not-a-number");
+
+        new ServerController().onOpen(client.session(), ROOM);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> client.sent().size() >= 2);
+        assertThat(sessionRegistry.isSubscribed(ROOM, client.session())).isTrue();
+        assertThat(client.sent()).anyMatch(frame -> frame.contains("\"resync\""));
+        assertThat(client.sent()).anyMatch(frame -> frame.contains("Connected"));
+    }
+
+    private static StubSession connecting(String id, String since) {
+        StubSession client = StubSession.recording(id);
+        String userProperty = (String) ReflectionTestUtils.getField(JwtHandshakeConfigurator.class, "USER_PROPERTY");
+        client.session().getUserProperties().put(userProperty,
+                UserDTO.builder().id("user-1").username("user1").build());
+        client.session().getRequestParameterMap().put(ServerController.SINCE_PARAMETER, List.of(since));
+        return client;
+    }
+}
@@ -0,0 +1,205 @@
+package com.testapp.rest;
+
+import com.testapp.domain.RoomManagement;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.repository.ChatRoomRepository;
+import com.testapp.repository.RoomManagementRepository;
+import com.testapp.repository.UserRepository;
+import com.testapp.service.JwtService;
+import com.testapp.support.Benchmarks;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.testapp.config.Constants.CHAT_MESSAGE_DLT_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_RETRY_TOPIC;
+import static com.testapp.config.Constants.CHAT_MESSAGE_TOPIC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency of sending a chat message over HTTP against sending it on the room's socket, through the
+ * whole application with an H2 database and an embedded broker. For each path it measures the
+ * time until the sender hears the broker accepted the message (the HTTP response, or the socket's
+ * ack frame) and until the message is delivered back on a socket subscribed to the room. Messages
+ * are sent one at a time, so these are unloaded latencies.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:latency;MODE=MySQL;NON_KEYWORDS=USER;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=false",
+        "security.jwt.secret-key=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=",
+        "chat.kafka.topic.partitions=1",
+        "chat.kafka.delivery.instance-id=latency"
+})
+@EmbeddedKafka(partitions = 1, topics = {CHAT_MESSAGE_TOPIC, CHAT_MESSAGE_RETRY_TOPIC, CHAT_MESSAGE_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@Tag(Benchmarks.TAG)
+class SocketPublishLatencyBenchmark {
+
+    private static final String ROOM = "room-1";
+    private static final int WARMUP = 200;
+    private static final int MESSAGES = 1_000;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private RoomManagementRepository roomManagementRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    // HTTP/1.1, as a browser on plain http: the default h2c upgrade request would read as a WebSocket upgrade
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    // Text fragment a frame must contain -> when it arrived
+    private final Map<String, CompletableFuture<Long>> awaited = new ConcurrentHashMap<>();
+
+    @Test
+    void run() throws Exception {
+        UserDTO user = userRepository.save(UserDTO.builder()
+                .id("user-1")
+                .username("user1")
+                .password("secret")
+                .firstName("First")
+                .lastName("Last")
+                .email("user1@example.com")
+                .build());
+        ChatRoomDTO room = chatRoomRepository.save(ChatRoomDTO.builder()
+                .id(ROOM)
+                .displayName("Room")
+                .description("Latency room")
+                .admin(user)
+                .participantCount(1)
+                .build());
+        roomManagementRepository.save(new RoomManagement(
+                new RoomManagement.RoomManagementId(user.getId(), room.getId()), user, room, true));
+        String token = jwtService.generateToken(user);
+
+        WebSocket socket = client.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + port + "/server/message/" + ROOM + "?token=" + token),
+                        new Frames())
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.addAll(measure("rest", (marker, correlationId) -> sendRest(token, marker)));
+            lines.addAll(measure("socket", (marker, correlationId) -> sendSocket(socket, marker, correlationId)));
+            Benchmarks.report(SocketPublishLatencyBenchmark.class, lines);
+        } finally {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private List<String> measure(String path, Sender sender) throws Exception {
+        long[] accepted = new long[MESSAGES];
+        long[] delivered = new long[MESSAGES];
+        for (int i = -WARMUP; i < MESSAGES; i++) {
+            String marker = path + "-" + UUID.randomUUID();
+            String correlationId = "c-" + marker;
+            CompletableFuture<Long> arrived = await("\"message\":\"" + marker + "\"");
+            CompletableFuture<Long> acked = await("\"correlationId\":\"" + correlationId + "\"");
+
+            long started = System.nanoTime();
+            long acceptedAt = sender.send(marker, correlationId);
+            if (acceptedAt == 0) {
+                acceptedAt = acked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            long deliveredAt = arrived.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            awaited.clear();
+            if (i >= 0) {
+                accepted[i] = acceptedAt - started;
+                delivered[i] = deliveredAt - started;
+            }
+        }
+        return List.of(summary(path, "accepted", accepted), summary(path, "delivered", delivered));
+    }
+
+    // Returns when the response arrived: the response is the broker's acknowledgement
+    private long sendRest(String token, String marker) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/message/chatRoom/" + ROOM))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"" + marker + "\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long acceptedAt = System.nanoTime();
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        return acceptedAt;
+    }
+
+    // Returns 0: the socket's ack frame tells when the broker accepted the message
+    private static long sendSocket(WebSocket socket, String marker, String correlationId) throws Exception {
+        socket.sendText("{\"message\":\"" + marker + "\",\"correlationId\":\"" + correlationId + "\"}", true)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return 0;
+    }
+
+    private CompletableFuture<Long> await(String fragment) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        awaited.put(fragment, future);
+        return future;
+    }
+
+    private static String summary(String path, String event, long[] nanos) {
+        Arrays.sort(nanos);
+        return String.format("path=%-6s %-9s mean=%.2fms p50=%.2fms p99=%.2fms", path, event,
+                Arrays.stream(nanos).average().orElseThrow() / 1e6, nanos[nanos.length / 2] / 1e6,
+                nanos[nanos.length * 99 / 100] / 1e6);
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+        long send(String marker, String correlationId) throws Exception;
+    }
+
+    private final class Frames implements WebSocket.Listener {
+
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                long arrivedAt = System.nanoTime();
+                String frame = text.toString();
+                text.setLength(0);
+                awaited.forEach((fragment, future) -> {
+                    if (frame.contains(fragment)) {
+                        future.complete(arrivedAt);
+                    }
+                });
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+}
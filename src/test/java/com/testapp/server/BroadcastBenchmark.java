@@ -0,0 +1,102 @@
+package com.testapp.server;
+
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.domain.server.MessageEncoder;
+import com.testapp.support.Benchmarks;
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.EncodeException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one broadcast as the number of connections grows while the room stays at
+ * {@value #ROOM_SIZE} members: the room index only visits the room's sessions, the full scan
+ * visits every connection and filters by room as the endpoint used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    static final int ROOM_SIZE = 50;
+
+    @Param({"1000", "10000", "50000"})
+    public int connections;
+
+    private final MessageEncoder encoder = new MessageEncoder();
+    private HeartbeatMonitor heartbeatMonitor;
+    private SessionRegistry sessionRegistry;
+    private MessageBroadcaster messageBroadcaster;
+    private SessionOutbound[] allSessions;
+    private String[] sessionRooms;
+    private ChatMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Heartbeats are kept out of the measurement
+        heartbeatMonitor = SessionRegistries.heartbeat(meterRegistry, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.HOURS.toMillis(2), 1000, 512);
+        sessionRegistry = SessionRegistries.create(meterRegistry, heartbeatMonitor, 256, OverflowPolicy.DROP_OLDEST);
+        messageBroadcaster = new MessageBroadcaster(sessionRegistry);
+
+        allSessions = new SessionOutbound[connections];
+        sessionRooms = new String[connections];
+        for (int i = 0; i < connections; i++) {
+            sessionRooms[i] = "room-" + i / ROOM_SIZE;
+            allSessions[i] = sessionRegistry.join(sessionRooms[i], StubSession.create("session-" + i).session());
+        }
+        message = ChatMessage.builder()
+                .id("message-1")
+                .seq(1L)
+                .chatRoomName("room-0")
+                .username("user1")
+                .message("Hello")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SessionRegistries.stop(sessionRegistry, heartbeatMonitor);
+    }
+
+    @Benchmark
+    public void roomIndex() {
+        messageBroadcaster.broadcast(message);
+    }
+
+    @Benchmark
+    public void fullScan() throws EncodeException {
+        String frame = encoder.encode(message);
+        for (int i = 0; i < allSessions.length; i++) {
+            if (sessionRooms[i].equals(message.getChatRoomName())) {
+                allSessions[i].send(frame);
+            }
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void run() throws Exception {
+        Benchmarks.run(BroadcastBenchmark.class);
+    }
+}
@@ -0,0 +1,97 @@
+package com.testapp.server;
+
+import com.testapp.domain.ChatMessageSummary;
+import com.testapp.domain.server.ChatMessage;
+import com.testapp.domain.server.MessageEncoder;
+import com.testapp.support.Benchmarks;
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.EncodeException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fanning one message out to a room: encoding it for every recipient as the endpoint used
+ * to, against encoding it once and queuing the same frame for each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class EncodeOnceBenchmark {
+
+    private static final String ROOM = "room-1";
+
+    @Param({"10", "100", "2000"})
+    public int roomSize;
+
+    private final MessageEncoder encoder = new MessageEncoder();
+    private HeartbeatMonitor heartbeatMonitor;
+    private SessionRegistry sessionRegistry;
+    private MessageBroadcaster messageBroadcaster;
+    private ChatMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        heartbeatMonitor = SessionRegistries.heartbeat(meterRegistry, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.HOURS.toMillis(2), 1000, 512);
+        sessionRegistry = SessionRegistries.create(meterRegistry, heartbeatMonitor, 256, OverflowPolicy.DROP_OLDEST);
+        messageBroadcaster = new MessageBroadcaster(sessionRegistry);
+        for (int i = 0; i < roomSize; i++) {
+            sessionRegistry.join(ROOM, StubSession.create("session-" + i).session());
+        }
+        message = ChatMessage.builder()
+                .id("0190f5c2-6c1e-7a31-9a4e-6f1f2b3c4d5e")
+                .seq(42L)
+                .chatRoomName(ROOM)
+                .username("user1")
+                .author(new ChatMessageSummary.Author("user-1", "user1", "First", "Last"))
+                .message("Hello, this is a chat message of a typical length for the room.")
+                .timeSent(Instant.parse("2026-01-01T12:00:00Z"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SessionRegistries.stop(sessionRegistry, heartbeatMonitor);
+    }
+
+    @Benchmark
+    public void perRecipient() throws EncodeException {
+        Set<SessionOutbound> sessions = sessionRegistry.getSessions(ROOM);
+        for (SessionOutbound outbound : sessions) {
+            outbound.send(encoder.encode(message));
+        }
+    }
+
+    @Benchmark
+    public void encodeOnce() {
+        messageBroadcaster.broadcast(message);
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    void run() throws Exception {
+        Benchmarks.run(EncodeOnceBenchmark.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.testapp.server;
+
+import com.testapp.support.Benchmarks;
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Connections and server-side memory for {@value #USERS} users in {@value #ROOMS_PER_USER} rooms
+ * each, with one socket per room and with every room multiplexed over one stream socket. Memory
+ * is the heap retained by the session registry, outbound queues, heartbeat entries and the stub
+ * sessions; a container session and its TCP buffers add to every socket on top of that, so the
+ * per-room layout costs more than shown here.
+ */
+@Tag(Benchmarks.TAG)
+class MultiplexedSocketsBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int ROOMS = 500;
+    private static final int ROOMS_PER_USER = 10;
+
+    @Test
+    void run() {
+        List<String> lines = new ArrayList<>();
+        lines.add(measure("per-room", false));
+        lines.add(measure("multiplexed", true));
+        Benchmarks.report(MultiplexedSocketsBenchmark.class, lines);
+    }
+
+    private String measure(String layout, boolean multiplexed) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Heartbeats are kept out of the measurement
+        HeartbeatMonitor heartbeatMonitor = SessionRegistries.heartbeat(meterRegistry, TimeUnit.HOURS.toMillis(1),
+                TimeUnit.HOURS.toMillis(2), 1000, 512);
+        SessionRegistry sessionRegistry =
+                SessionRegistries.create(meterRegistry, heartbeatMonitor, 256, OverflowPolicy.DROP_OLDEST);
+        try {
+            long before = usedHeap();
+            long start = System.nanoTime();
+            for (int user = 0; user < USERS; user++) {
+                StubSession stream = StubSession.create("user-" + user);
+                for (int i = 0; i < ROOMS_PER_USER; i++) {
+                    // Spread each user's rooms across the room range so every room gets members
+                    String room = "room-" + (user + i * (ROOMS / ROOMS_PER_USER)) % ROOMS;
+                    StubSession socket = multiplexed ? stream : StubSession.create("user-" + user + "-" + i);
+                    sessionRegistry.join(room, socket.session());
+                }
+            }
+            long setupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long retained = usedHeap() - before;
+
+            int sockets = sessionRegistry.getSessionCount();
+            assertThat(sockets).isEqualTo(multiplexed ? USERS : USERS * ROOMS_PER_USER);
+            assertThat(sessionRegistry.getRoomCount()).isEqualTo(ROOMS);
+            return String.format("layout=%-11s sockets=%d heap=%.1fMB bytes/user=%d setup=%dms",
+                    layout, sockets, retained / (1024.0 * 1024.0), retained / USERS, setupMs);
+        } finally {
+            SessionRegistries.stop(sessionRegistry, heartbeatMonitor);
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
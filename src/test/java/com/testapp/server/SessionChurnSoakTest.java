@@ -0,0 +1,151 @@
+package com.testapp.server;
+
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Opens, subscribes and drops sessions from several threads for a few seconds, some leaving
+ * cleanly and some going silent until the heartbeat closes them, then checks nothing is left
+ * behind in the registry or on the timer wheel.
+ */
+class SessionChurnSoakTest {
+
+    private static final Duration CHURN = Duration.ofSeconds(3);
+    private static final int THREADS = 4;
+    private static final int ROOMS = 20;
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 64;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HeartbeatMonitor heartbeatMonitor;
+    private SessionRegistry sessionRegistry;
+
+    // Sessions left to go idle, waiting for the heartbeat to close them
+    private final Queue<StubSession> silent = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        heartbeatMonitor = SessionRegistries.heartbeat(meterRegistry, 50, 100, TICK_MS, WHEEL_SIZE);
+        sessionRegistry = SessionRegistries.create(meterRegistry, heartbeatMonitor, 16, OverflowPolicy.DROP_OLDEST);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SessionRegistries.stop(sessionRegistry, heartbeatMonitor);
+    }
+
+    @Test
+    void churnedSessionsLeaveNothingBehind() throws Exception {
+        long deadline = System.nanoTime() + CHURN.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                running.add(clients.submit(() -> churn(deadline)));
+            }
+            running.add(clients.submit(() -> reapSilent(deadline)));
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        // Stands in for the container's @OnClose on sessions the heartbeat is still closing
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            silent.removeIf(client -> {
+                if (!client.isOpen()) {
+                    sessionRegistry.leave(client.session());
+                    return true;
+                }
+                return false;
+            });
+            return silent.isEmpty();
+        });
+        // Unwatched entries are dropped when their slot next comes round
+        await().atMost(Duration.ofSeconds(10)).until(() -> wheelOccupancy() == 0);
+
+        assertThat(opened.get()).isGreaterThan(THREADS);
+        assertThat(sessionRegistry.getSessionCount()).isZero();
+        assertThat(sessionRegistry.getRoomCount()).isZero();
+        assertThat(mapSize(sessionRegistry, "sessionRooms")).isZero();
+        assertThat(mapSize(heartbeatMonitor, "entries")).isZero();
+        assertThat((Queue<?>) ReflectionTestUtils.getField(heartbeatMonitor, "pending")).isEmpty();
+        assertThat(meterRegistry.get("chat.websocket.heartbeat.sessions").gauge().value()).isZero();
+        assertThat(meterRegistry.get("chat.websocket.heartbeat.idle.closes").counter().count()).isPositive();
+    }
+
+    private void churn(long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            StubSession client = StubSession.create("session-" + opened.incrementAndGet());
+            int rooms = 1 + random.nextInt(3);
+            for (int i = 0; i < rooms; i++) {
+                sessionRegistry.join("room-" + random.nextInt(ROOMS), client.session());
+            }
+            if (random.nextInt(10) < 3) {
+                silent.add(client);
+                continue;
+            }
+            sessionRegistry.touch(client.session());
+            if (random.nextBoolean()) {
+                sessionRegistry.unsubscribe("room-" + random.nextInt(ROOMS), client.session());
+            }
+            sleep(random.nextInt(3));
+            sessionRegistry.leave(client.session());
+        }
+    }
+
+    private void reapSilent(long deadline) {
+        while (System.nanoTime() < deadline) {
+            StubSession client = silent.peek();
+            if (client != null && !client.isOpen() && silent.remove(client)) {
+                sessionRegistry.leave(client.session());
+            } else {
+                sleep(1);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int wheelOccupancy() {
+        int occupied = 0;
+        for (ArrayDeque<?> slot : (ArrayDeque<?>[]) ReflectionTestUtils.getField(heartbeatMonitor, "wheel")) {
+            occupied += slot.size();
+        }
+        return occupied;
+    }
+
+    private static int mapSize(Object target, String field) {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(target, field)).size();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
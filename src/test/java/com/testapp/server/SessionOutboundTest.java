@@ -0,0 +1,59 @@
+package com.testapp.server;
+
+import com.testapp.support.StubSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionOutboundTest {
+
+    private final StubSession client = StubSession.stalled("session-1");
+    private final SessionOutbound outbound = new SessionOutbound(client.session(), 3, OverflowPolicy.COALESCE,
+            new OutboundMetrics(new SimpleMeterRegistry()), Runnable::run);
+
+    @Test
+    void coalescedPayloadsStayAheadOfLaterControlFrames() {
+        outbound.send("{\"seq\":1}");
+        outbound.send("{\"seq\":2}");
+        outbound.send("{\"seq\":3}");
+        outbound.sendControl("{\"type\":\"replayed\"}");
+        outbound.send("{\"seq\":4}");
+
+        client.completeWrites();
+
+        assertThat(client.sent()).containsExactly(
+                "{\"seq\":1}",
+                "[{\"seq\":2},{\"seq\":3}]",
+                "{\"type\":\"replayed\"}",
+                "{\"seq\":4}");
+    }
+
+    @Test
+    void payloadsAfterControlFrameAreMergedBehindIt() {
+        outbound.send("{\"seq\":1}");
+        outbound.send("{\"seq\":2}");
+        outbound.sendControl("{\"type\":\"replayed\"}");
+        outbound.send("{\"seq\":3}");
+        outbound.send("[{\"seq\":4},{\"seq\":5}]");
+
+        client.completeWrites();
+
+        assertThat(client.sent()).containsExactly(
+                "{\"seq\":1}",
+                "{\"seq\":2}",
+                "{\"type\":\"replayed\"}",
+                "[{\"seq\":3},{\"seq\":4},{\"seq\":5}]");
+    }
+
+    @Test
+    void disconnectsWhenNothingCanBeMerged() {
+        outbound.send("{\"seq\":1}");
+        outbound.send("{\"seq\":2}");
+        outbound.sendControl("{\"type\":\"ack\"}");
+        outbound.send("{\"seq\":3}");
+        outbound.sendControl("{\"type\":\"replayed\"}");
+
+        assertThat(client.isOpen()).isFalse();
+    }
+}
@@ -0,0 +1,37 @@
+package com.testapp.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Builds a {@link SessionRegistry} and its {@link HeartbeatMonitor} outside a Spring context.
+ */
+public final class SessionRegistries {
+
+    private SessionRegistries() {
+    }
+
+    public static HeartbeatMonitor heartbeat(MeterRegistry meterRegistry, long pingIntervalMs, long idleTimeoutMs,
+                                             long tickMs, int wheelSize) {
+        HeartbeatMonitor monitor = new HeartbeatMonitor(meterRegistry);
+        ReflectionTestUtils.setField(monitor, "pingIntervalMs", pingIntervalMs);
+        ReflectionTestUtils.setField(monitor, "idleTimeoutMs", idleTimeoutMs);
+        ReflectionTestUtils.setField(monitor, "tickMs", tickMs);
+        ReflectionTestUtils.setField(monitor, "wheelSize", wheelSize);
+        monitor.start();
+        return monitor;
+    }
+
+    public static SessionRegistry create(MeterRegistry meterRegistry, HeartbeatMonitor monitor, int queueCapacity,
+                                         OverflowPolicy overflowPolicy) {
+        SessionRegistry registry = new SessionRegistry(new OutboundMetrics(meterRegistry), monitor);
+        ReflectionTestUtils.setField(registry, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(registry, "overflowPolicy", overflowPolicy);
+        return registry;
+    }
+
+    public static void stop(SessionRegistry registry, HeartbeatMonitor monitor) {
+        registry.shutdown();
+        monitor.stop();
+    }
+}
@@ -0,0 +1,146 @@
+package com.testapp.service;
+
+import com.testapp.domain.MessagePage;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+import com.testapp.kafka.KProducer;
+import com.testapp.repository.ChatMessageRepository;
+import com.testapp.support.Benchmarks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency of loading a room's newest history page, the read every client makes when it opens a
+ * room, served from the database and from the recent message cache. The database is in-memory
+ * H2, so the database numbers are a lower bound for MySQL across a network.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history;MODE=MySQL;NON_KEYWORDS=USER;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Tag(Benchmarks.TAG)
+class HistoryLoadBenchmark {
+
+    private static final String ROOM = "room-1";
+    private static final int USERS = 20;
+    private static final int MESSAGES = 2_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Test
+    void run() {
+        seed();
+        List<String> lines = new ArrayList<>();
+        lines.add(measure("database", service(uncached())));
+        lines.add(measure("cache", service(cache())));
+        Benchmarks.report(HistoryLoadBenchmark.class, lines);
+    }
+
+    private String measure(String name, MessageService messageService) {
+        for (int i = 0; i < WARMUP; i++) {
+            load(messageService);
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            load(messageService);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return String.format("%-8s page=%d mean=%.1fus p50=%.1fus p99=%.1fus", name, PAGE_SIZE,
+                Arrays.stream(nanos).average().orElseThrow() / 1e3, nanos[ITERATIONS / 2] / 1e3,
+                nanos[ITERATIONS * 99 / 100] / 1e3);
+    }
+
+    private static void load(MessageService messageService) {
+        MessagePage page = messageService.getMessagePage(ROOM, null, null, PAGE_SIZE);
+        assertThat(page.getMessages()).hasSize(PAGE_SIZE);
+    }
+
+    private MessageService service(RecentMessageCache cache) {
+        MessageService messageService = new MessageService(mock(KProducer.class), messageRepository, cache);
+        ReflectionTestUtils.setField(messageService, "defaultPageSize", PAGE_SIZE);
+        ReflectionTestUtils.setField(messageService, "maxPageSize", 200);
+        return messageService;
+    }
+
+    // A cache that never holds the room sends every read to the database
+    private static RecentMessageCache uncached() {
+        RecentMessageCache cache = mock(RecentMessageCache.class);
+        when(cache.getLatest(anyString(), anyInt())).thenReturn(null);
+        return cache;
+    }
+
+    private static RecentMessageCache cache() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "messagesPerRoom", 200);
+        ReflectionTestUtils.setField(cache, "maxBytesPerRoom", 262_144L);
+        ReflectionTestUtils.setField(cache, "maxRooms", 1_000);
+        ReflectionTestUtils.setField(cache, "maxTotalBytes", 67_108_864L);
+        ReflectionTestUtils.setField(cache, "persistenceLagMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxSkippedRooms", 100_000);
+        return cache;
+    }
+
+    private void seed() {
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(entityManager.persist(UserDTO.builder()
+                    .id("user-" + i)
+                    .username("user" + i)
+                    .password("secret")
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .build()));
+        }
+        ChatRoomDTO room = entityManager.persist(ChatRoomDTO.builder()
+                .id(ROOM)
+                .displayName("Room")
+                .description("A busy room")
+                .admin(users.get(0))
+                .participantCount(USERS)
+                .build());
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < MESSAGES; i++) {
+            entityManager.persist(ChatMessageDTO.builder()
+                    .id(String.format("message-%05d", i))
+                    .userId(users.get(i % USERS))
+                    .chatRoomDTO(room)
+                    .message("Hello, this is message " + i + " in the room.")
+                    .timeSent(start.plusSeconds(i))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
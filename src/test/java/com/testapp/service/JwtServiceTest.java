@@ -0,0 +1,57 @@
+package com.testapp.service;
+
+import com.testapp.domain.dto.UserDTO;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private final JwtService jwtService = new JwtService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey", Base64.getEncoder().encodeToString(new byte[32]));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "maxCachedTokens", 2);
+        jwtService.init();
+    }
+
+    @Test
+    void fullCacheEvictsLeastRecentlyUsedToken() {
+        String first = token("user1");
+        String second = token("user2");
+        String third = token("user3");
+
+        jwtService.extractUsername(first);
+        jwtService.extractUsername(second);
+        jwtService.extractUsername(first);
+        jwtService.extractUsername(third);
+
+        assertThat(cachedTokens()).containsOnlyKeys(first, third);
+    }
+
+    @Test
+    void cachedClaimsAreReturned() {
+        String token = token("user1");
+
+        assertThat(jwtService.extractUsername(token)).isEqualTo("user1");
+        assertThat(jwtService.extractUser(token).getId()).isEqualTo("id-user1");
+        assertThat(cachedTokens()).containsOnlyKeys(token);
+    }
+
+    private String token(String username) {
+        return jwtService.generateToken(UserDTO.builder().id("id-" + username).username(username).build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Claims> cachedTokens() {
+        return (Map<String, Claims>) ReflectionTestUtils.getField(jwtService, "verifiedClaims");
+    }
+}
@@ -0,0 +1,62 @@
+package com.testapp.support;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks under src/test. They are tagged {@code benchmark} and only run with
+ * {@code mvn -Pbenchmark test}; each writes its results to target/benchmarks.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private static final Path RESULTS = Path.of("target", "benchmarks");
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs every JMH benchmark method of the class, with the iterations and forks its annotations set.
+     */
+    public static void run(Class<?> benchmark) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(Pattern.quote(benchmark.getName()) + "\\.")
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results(benchmark, "json").toString())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Prints the result lines of a load-test harness and writes them to its results file.
+     */
+    public static void report(Class<?> harness, List<String> lines) {
+        lines.forEach(System.out::println);
+        try {
+            Files.write(results(harness, "txt"), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path results(Class<?> benchmark, String extension) {
+        try {
+            Files.createDirectories(RESULTS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return RESULTS.resolve(benchmark.getSimpleName() + "." + extension);
+    }
+}
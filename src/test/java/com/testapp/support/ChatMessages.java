@@ -0,0 +1,32 @@
+package com.testapp.support;
+
+import com.testapp.domain.ChatMessageKey;
+import com.testapp.domain.dto.ChatMessageDTO;
+import com.testapp.domain.dto.ChatRoomDTO;
+import com.testapp.domain.dto.UserDTO;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Chat messages as the producer publishes them, for tests and benchmarks.
+ */
+public final class ChatMessages {
+
+    private ChatMessages() {
+    }
+
+    public static ChatMessageDTO message(String chatRoomId, String text) {
+        return ChatMessageDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(UserDTO.builder().id("user-1").username("user1").firstName("First").lastName("Last").build())
+                .chatRoomDTO(ChatRoomDTO.builder().id(chatRoomId).build())
+                .message(text)
+                .timeSent(Instant.now())
+                .build();
+    }
+
+    public static ChatMessageKey key(ChatMessageDTO message) {
+        return new ChatMessageKey(message.getChatRoomDTO().getId(), message.getUserId().getId(), message.getId());
+    }
+}
@@ -0,0 +1,159 @@
+package com.testapp.support;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory WebSocket session whose writes complete immediately, or once the test completes them
+ * for a stalled session. Text frames are recorded when asked to, so tests can check what each
+ * socket received; benchmarks leave recording off.
+ */
+public final class StubSession {
+
+    private final String id;
+    private final boolean recording;
+    private final boolean stalled;
+    private final Deque<SendHandler> inFlight = new ArrayDeque<>();
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Object> userProperties = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> requestParameters = new ConcurrentHashMap<>();
+    private final AtomicInteger pings = new AtomicInteger();
+    private volatile boolean open = true;
+    private volatile CloseReason closeReason;
+    private final Session session;
+
+    private StubSession(String id, boolean recording, boolean stalled) {
+        this.id = id;
+        this.recording = recording;
+        this.stalled = stalled;
+        RemoteEndpoint.Async async = proxy(RemoteEndpoint.Async.class, this::onAsync);
+        RemoteEndpoint.Basic basic = proxy(RemoteEndpoint.Basic.class, this::onBasic);
+        this.session = proxy(Session.class, (method, args) -> switch (method.getName()) {
+            case "getId" -> id;
+            case "isOpen" -> open;
+            case "getAsyncRemote" -> async;
+            case "getBasicRemote" -> basic;
+            case "getUserProperties" -> userProperties;
+            case "getRequestParameterMap" -> requestParameters;
+            case "close" -> {
+                open = false;
+                closeReason = args != null && args.length > 0 ? (CloseReason) args[0] : null;
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    public static StubSession create(String id) {
+        return new StubSession(id, false, false);
+    }
+
+    public static StubSession recording(String id) {
+        return new StubSession(id, true, false);
+    }
+
+    /**
+     * A recording session whose writes stay in flight until {@link #completeWrites()}.
+     */
+    public static StubSession stalled(String id) {
+        return new StubSession(id, true, true);
+    }
+
+    /**
+     * Completes the writes in flight, and any the completions start, until none are left.
+     */
+    public void completeWrites() {
+        while (true) {
+            SendHandler handler;
+            synchronized (inFlight) {
+                handler = inFlight.pollFirst();
+            }
+            if (handler == null) {
+                return;
+            }
+            handler.onResult(new SendResult());
+        }
+    }
+
+    public Session session() {
+        return session;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> sent() {
+        synchronized (sent) {
+            return List.copyOf(sent);
+        }
+    }
+
+    public int pings() {
+        return pings.get();
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public CloseReason closeReason() {
+        return closeReason;
+    }
+
+    private Object onAsync(Method method, Object[] args) {
+        if (method.getName().equals("sendText") && args.length == 2) {
+            if (recording) {
+                sent.add((String) args[0]);
+            }
+            SendHandler handler = (SendHandler) args[1];
+            if (stalled && open) {
+                synchronized (inFlight) {
+                    inFlight.addLast(handler);
+                }
+            } else {
+                handler.onResult(open ? new SendResult() : new SendResult(new IllegalStateException("closed")));
+            }
+            return null;
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+
+    private Object onBasic(Method method, Object[] args) {
+        if (method.getName().equals("sendPing")) {
+            pings.incrementAndGet();
+            return null;
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    private <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> type.getSimpleName() + "[" + id + "]";
+            default -> handler.invoke(method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+}